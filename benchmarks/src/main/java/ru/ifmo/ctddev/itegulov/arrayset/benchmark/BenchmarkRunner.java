@@ -0,0 +1,36 @@
+package ru.ifmo.ctddev.itegulov.arrayset.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks with usual JMH command line options, but writes results as JSON
+ * (to {@code jmh-result.json}, unless {@code -rf}/{@code -rff} are given) and always
+ * enables {@link GCProfiler}, which reports allocated bytes per operation.
+ * <p>
+ * Usage: {@code java -jar benchmarks.jar [JMH options]}, for example
+ * {@code java -jar benchmarks.jar SortedSetBenchmark.floor -p size=1000000}.
+ *
+ * @author Daniyar Itegulov
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            builder.result("jmh-result.json");
+        }
+        new Runner(builder.build()).run();
+    }
+}
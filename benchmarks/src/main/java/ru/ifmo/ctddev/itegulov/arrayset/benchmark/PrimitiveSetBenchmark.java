@@ -0,0 +1,104 @@
+package ru.ifmo.ctddev.itegulov.arrayset.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.ctddev.itegulov.arrayset.ArraySet;
+import ru.ifmo.ctddev.itegulov.arrayset.IntArraySet;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@code floor} lookups in {@link ArraySet} and {@link IntArraySet} with plain binary search
+ * over the same boxed and primitive arrays: {@link ArraySet} searches its backing array with
+ * {@link Arrays#binarySearch(Object[], int, int, Object, Comparator)}, and {@link IntArraySet} searches
+ * in {@code EytzingerLayout}, if it has at most 2<sup>20</sup> elements, and with
+ * {@link Arrays#binarySearch(int[], int, int, int)} otherwise.
+ * <p>
+ * Sets consist of even integers, every invocation probes {@link #QUERIES} random values (half of them
+ * are absent) and is normalized per probe.
+ *
+ * @author Daniyar Itegulov
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PrimitiveSetBenchmark {
+    private static final int QUERIES = 1 << 16;
+    private static final Comparator<Integer> COMPARATOR = Integer::compare;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int size;
+
+    private int[] values;
+    private Integer[] boxed;
+    private ArraySet<Integer> arraySet;
+    private IntArraySet intArraySet;
+    private int[] queries;
+    private Integer[] boxedQueries;
+
+    @Setup
+    public void setUp() {
+        values = new int[size];
+        boxed = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = 2 * i;
+            boxed[i] = values[i];
+        }
+        arraySet = new ArraySet<>(Arrays.asList(boxed), COMPARATOR);
+        intArraySet = new IntArraySet(values);
+
+        Random random = new Random(size);
+        queries = new int[QUERIES];
+        boxedQueries = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = random.nextInt(2 * size + 1) - 1;
+            boxedQueries[i] = queries[i];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public long boxedBinarySearch() {
+        long sum = 0;
+        for (Integer query : boxedQueries) {
+            sum += Arrays.binarySearch(boxed, query, COMPARATOR);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public long arraySetFloor() {
+        long sum = 0;
+        for (Integer query : boxedQueries) {
+            Integer floor = arraySet.floor(query);
+            sum += floor == null ? 0 : floor;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public long intBinarySearch() {
+        long sum = 0;
+        for (int query : queries) {
+            sum += Arrays.binarySearch(values, query);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public long intArraySetFloor() {
+        long sum = 0;
+        for (int query : queries) {
+            sum += intArraySet.floorInt(query, 0);
+        }
+        return sum;
+    }
+}
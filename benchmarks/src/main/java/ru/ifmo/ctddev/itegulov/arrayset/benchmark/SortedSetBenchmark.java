@@ -0,0 +1,175 @@
+package ru.ifmo.ctddev.itegulov.arrayset.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.ifmo.ctddev.itegulov.arrayset.ArraySet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ArraySet} with {@link TreeSet} and {@link ConcurrentSkipListSet} over sets
+ * of even integers of different sizes, ordered either naturally or by an explicit comparator.
+ * <p>
+ * Lookup benchmarks probe {@link #QUERIES} random values per invocation (half of them are
+ * absent) and are normalized per probe. {@link #copySorted} copies an already sorted set
+ * with the same order, so none of the implementations has to sort: its
+ * {@code gc.alloc.rate.norm} (reported with {@code -prof gc}, which {@link BenchmarkRunner}
+ * enables by default) is the memory footprint of the resulting set.
+ *
+ * @author Daniyar Itegulov
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SortedSetBenchmark {
+    private static final int QUERIES = 1 << 12;
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"ArraySet", "TreeSet", "ConcurrentSkipListSet"})
+    private String implementation;
+
+    @Param({"natural", "comparator"})
+    private String order;
+
+    private List<Integer> shuffled;
+    private TreeSet<Integer> sorted;
+    private NavigableSet<Integer> set;
+    private Integer[] queries;
+    private Integer[] bounds;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(size);
+        Comparator<Integer> comparator = comparator();
+        shuffled = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            shuffled.add(2 * i);
+        }
+        Collections.shuffle(shuffled, random);
+        sorted = comparator == null ? new TreeSet<>() : new TreeSet<>(comparator);
+        sorted.addAll(shuffled);
+        set = create(shuffled);
+
+        queries = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = random.nextInt(2 * size + 1) - 1;
+        }
+        bounds = new Integer[2 * QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int from = random.nextInt(2 * size);
+            int to = random.nextInt(2 * size);
+            bounds[2 * i] = Math.min(from, to);
+            bounds[2 * i + 1] = Math.max(from, to);
+        }
+    }
+
+    /**
+     * @return comparator for {@code order} parameter, or {@code null} for natural ordering
+     */
+    private Comparator<Integer> comparator() {
+        switch (order) {
+            case "natural":
+                return null;
+            case "comparator":
+                return Integer::compare;
+            default:
+                throw new IllegalArgumentException("Unknown order: " + order);
+        }
+    }
+
+    private NavigableSet<Integer> create(Collection<Integer> elements) {
+        Comparator<Integer> comparator = comparator();
+        switch (implementation) {
+            case "ArraySet":
+                return comparator == null ? new ArraySet<>(elements) : new ArraySet<>(elements, comparator);
+            case "TreeSet":
+                if (elements instanceof SortedSet) {
+                    return new TreeSet<>((SortedSet<Integer>) elements);
+                }
+                TreeSet<Integer> treeSet = comparator == null ? new TreeSet<>() : new TreeSet<>(comparator);
+                treeSet.addAll(elements);
+                return treeSet;
+            case "ConcurrentSkipListSet":
+                if (elements instanceof SortedSet) {
+                    return new ConcurrentSkipListSet<>((SortedSet<Integer>) elements);
+                }
+                ConcurrentSkipListSet<Integer> skipListSet = comparator == null
+                        ? new ConcurrentSkipListSet<>() : new ConcurrentSkipListSet<>(comparator);
+                skipListSet.addAll(elements);
+                return skipListSet;
+            default:
+                throw new IllegalArgumentException("Unknown implementation: " + implementation);
+        }
+    }
+
+    @Benchmark
+    public NavigableSet<Integer> construct() {
+        return create(shuffled);
+    }
+
+    @Benchmark
+    public NavigableSet<Integer> copySorted() {
+        return create(sorted);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int contains() {
+        int found = 0;
+        for (Integer query : queries) {
+            if (set.contains(query)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void floor(Blackhole blackhole) {
+        for (Integer query : queries) {
+            blackhole.consume(set.floor(query));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void ceiling(Blackhole blackhole) {
+        for (Integer query : queries) {
+            blackhole.consume(set.ceiling(query));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void subSet(Blackhole blackhole) {
+        for (int i = 0; i < bounds.length; i += 2) {
+            blackhole.consume(set.subSet(bounds[i], true, bounds[i + 1], false));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void descendingHeadSet(Blackhole blackhole) {
+        NavigableSet<Integer> descending = set.descendingSet();
+        for (Integer query : queries) {
+            blackhole.consume(descending.headSet(query, true));
+        }
+    }
+
+    @Benchmark
+    public long iterate() {
+        long sum = 0;
+        for (Integer value : set) {
+            sum += value;
+        }
+        return sum;
+    }
+}
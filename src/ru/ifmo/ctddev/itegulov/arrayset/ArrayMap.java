@@ -0,0 +1,426 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Immutable {@link java.util.NavigableMap}, which keeps sorted keys and corresponding
+ * values in two parallel arrays, the same way as {@link ArraySet} keeps its elements.
+ * Lookups are done by binary search over keys. {@link #descendingMap} works for O(1),
+ * {@link #headMap}, {@link #tailMap} and {@link #subMap} work for O(log n); all views
+ * share arrays with the original map.
+ *
+ * @author Daniyar Itegulov
+ */
+public class ArrayMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+    private final Object[] keys;
+    private final Object[] values;
+    private final int from;
+    private final int to;
+    private final boolean descending;
+    private final Comparator<K> comparator;
+    private final boolean isNatural;
+
+    public ArrayMap() {
+        this(Collections.emptyMap());
+    }
+
+    public ArrayMap(Map<? extends K, ? extends V> map) {
+        this(map, ArraySet.naturalOrder(), true);
+    }
+
+    public ArrayMap(Map<? extends K, ? extends V> map, Comparator<K> comparator) {
+        this(map, comparator, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArrayMap(Map<? extends K, ? extends V> map, Comparator<K> comparator, boolean isNatural) {
+        Map.Entry<K, V>[] entries = ArraySet.entries(map);
+        if (!(map instanceof SortedMap
+                && ArraySet.sameOrder(((SortedMap<?, ?>) map).comparator(), comparator, isNatural))) {
+            Arrays.parallelSort(entries, (a, b) -> comparator.compare(a.getKey(), b.getKey()));
+        }
+        Object[] keys = new Object[entries.length];
+        Object[] values = new Object[entries.length];
+        int size = 0;
+        for (Map.Entry<K, V> entry : entries) {
+            if (size > 0 && comparator.compare((K) keys[size - 1], entry.getKey()) == 0) {
+                values[size - 1] = entry.getValue();
+            } else {
+                keys[size] = entry.getKey();
+                values[size++] = entry.getValue();
+            }
+        }
+        this.keys = size == keys.length ? keys : Arrays.copyOf(keys, size);
+        this.values = size == values.length ? values : Arrays.copyOf(values, size);
+        this.from = 0;
+        this.to = size;
+        this.descending = false;
+        this.comparator = comparator;
+        this.isNatural = isNatural;
+    }
+
+    private ArrayMap(Object[] keys, Object[] values, int from, int to, boolean descending,
+                     Comparator<K> comparator, boolean isNatural) {
+        this.keys = keys;
+        this.values = values;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+        this.comparator = comparator;
+        this.isNatural = isNatural;
+    }
+
+    /**
+     * Creates map from entries, which are sorted by natural order of keys, in O(n).
+     *
+     * @param entries entries with strictly increasing keys
+     * @param <K> type of keys
+     * @param <V> type of values
+     * @return new map
+     * @throws IllegalArgumentException if keys are not strictly increasing
+     */
+    public static <K, V> ArrayMap<K, V> ofSorted(Stream<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        return ofSorted(entries, ArraySet.naturalOrder(), true);
+    }
+
+    /**
+     * Creates map from entries, which are sorted by given comparator, in O(n).
+     *
+     * @param entries entries with strictly increasing keys
+     * @param comparator comparator, which orders keys
+     * @param <K> type of keys
+     * @param <V> type of values
+     * @return new map
+     * @throws IllegalArgumentException if keys are not strictly increasing
+     */
+    public static <K, V> ArrayMap<K, V> ofSorted(Stream<? extends Map.Entry<? extends K, ? extends V>> entries,
+                                                 Comparator<K> comparator) {
+        return ofSorted(entries, comparator, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> ArrayMap<K, V> ofSorted(Stream<? extends Map.Entry<? extends K, ? extends V>> entries,
+                                                  Comparator<K> comparator, boolean isNatural) {
+        Object[] array = entries.toArray();
+        Object[] keys = new Object[array.length];
+        Object[] values = new Object[array.length];
+        for (int i = 0; i < array.length; i++) {
+            Map.Entry<K, V> entry = (Map.Entry<K, V>) array[i];
+            keys[i] = entry.getKey();
+            values[i] = entry.getValue();
+            if (i > 0 && comparator.compare((K) keys[i - 1], (K) keys[i]) >= 0) {
+                throw new IllegalArgumentException("Keys are not strictly increasing: "
+                        + keys[i - 1] + ", " + keys[i]);
+            }
+        }
+        return new ArrayMap<>(keys, values, 0, keys.length, false, comparator, isNatural);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int search(Object key) {
+        return Arrays.binarySearch((K[]) keys, from, to, (K) key, comparator);
+    }
+
+    private int ascendingLower(K key) {
+        int index = search(key);
+        return index >= 0 ? index - 1 : -index - 2;
+    }
+
+    private int ascendingFloor(K key) {
+        int index = search(key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private int ascendingCeiling(K key) {
+        int index = search(key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private int ascendingHigher(K key) {
+        int index = search(key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private boolean inRange(int index) {
+        return index >= from && index < to;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K keyAt(int index) {
+        return (K) keys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int index) {
+        return (V) values[index];
+    }
+
+    private Map.Entry<K, V> entryAt(int index) {
+        return inRange(index) ? new SimpleImmutableEntry<>(keyAt(index), valueAt(index)) : null;
+    }
+
+    private K keyOrNull(int index) {
+        return inRange(index) ? keyAt(index) : null;
+    }
+
+    private int lowerIndex(K key) {
+        return descending ? ascendingHigher(key) : ascendingLower(key);
+    }
+
+    private int floorIndex(K key) {
+        return descending ? ascendingCeiling(key) : ascendingFloor(key);
+    }
+
+    private int ceilingIndex(K key) {
+        return descending ? ascendingFloor(key) : ascendingCeiling(key);
+    }
+
+    private int higherIndex(K key) {
+        return descending ? ascendingLower(key) : ascendingHigher(key);
+    }
+
+    private int firstIndex() {
+        return descending ? to - 1 : from;
+    }
+
+    private int lastIndex() {
+        return descending ? from : to - 1;
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+        return entryAt(lowerIndex(key));
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return keyOrNull(lowerIndex(key));
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+        return entryAt(floorIndex(key));
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return keyOrNull(floorIndex(key));
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+        return entryAt(ceilingIndex(key));
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return keyOrNull(ceilingIndex(key));
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+        return entryAt(higherIndex(key));
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return keyOrNull(higherIndex(key));
+    }
+
+    @Override
+    public Entry<K, V> firstEntry() {
+        return entryAt(firstIndex());
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+        return entryAt(lastIndex());
+    }
+
+    @Override
+    public Entry<K, V> pollFirstEntry() {
+        throw new UnsupportedOperationException("pollFirstEntry");
+    }
+
+    @Override
+    public Entry<K, V> pollLastEntry() {
+        throw new UnsupportedOperationException("pollLastEntry");
+    }
+
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+        return new ArrayMap<>(keys, values, from, to, !descending, comparator, isNatural);
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return ArraySet.view(keys, from, to, descending, comparator, isNatural);
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return ArraySet.view(keys, from, to, !descending, comparator, isNatural);
+    }
+
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        return headMap(toKey, toInclusive).tailMap(fromKey, fromInclusive);
+    }
+
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        if (descending) {
+            int newFrom = inclusive ? ascendingCeiling(toKey) : ascendingHigher(toKey);
+            return new ArrayMap<>(keys, values, newFrom, to, true, comparator, isNatural);
+        }
+        int newTo = inclusive ? ascendingHigher(toKey) : ascendingCeiling(toKey);
+        return new ArrayMap<>(keys, values, from, newTo, false, comparator, isNatural);
+    }
+
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        if (descending) {
+            int newTo = inclusive ? ascendingHigher(fromKey) : ascendingCeiling(fromKey);
+            return new ArrayMap<>(keys, values, from, newTo, true, comparator, isNatural);
+        }
+        int newFrom = inclusive ? ascendingCeiling(fromKey) : ascendingHigher(fromKey);
+        return new ArrayMap<>(keys, values, newFrom, to, false, comparator, isNatural);
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        if (descending) {
+            return isNatural ? Collections.reverseOrder() : Collections.reverseOrder(comparator);
+        }
+        return isNatural ? null : comparator;
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @Override
+    public K firstKey() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return keyAt(firstIndex());
+    }
+
+    @Override
+    public K lastKey() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return keyAt(lastIndex());
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return search(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (int i = from; i < to; i++) {
+            if (Objects.equals(value, values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public V get(Object key) {
+        int index = search(key);
+        return index >= 0 ? valueAt(index) : null;
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new IndexIterator<V>() {
+                    @Override
+                    protected V get(int index) {
+                        return valueAt(index);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ArrayMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new IndexIterator<Entry<K, V>>() {
+                    @Override
+                    protected Entry<K, V> get(int index) {
+                        return new SimpleImmutableEntry<>(keyAt(index), valueAt(index));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ArrayMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Iterator over indices of this map in its order.
+     */
+    private abstract class IndexIterator<E> implements Iterator<E> {
+        private final int step = descending ? -1 : 1;
+        private final int fence = descending ? from - 1 : to;
+        private int index = descending ? to - 1 : from;
+
+        protected abstract E get(int index);
+
+        @Override
+        public boolean hasNext() {
+            return index != fence;
+        }
+
+        @Override
+        public E next() {
+            if (index == fence) {
+                throw new NoSuchElementException();
+            }
+            E element = get(index);
+            index += step;
+            return element;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ArrayMapTest {
+    private static final Random RANDOM = new Random(3239);
+
+    private static Map<Integer, String> randomMap(int size, int bound) {
+        Map<Integer, String> map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            int key = RANDOM.nextInt(bound) - bound / 2;
+            map.put(key, "v" + key);
+        }
+        return map;
+    }
+
+    private static <K, V> void assertSameMap(NavigableMap<K, V> expected, NavigableMap<K, V> actual, List<K> probes) {
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(actual.entrySet()));
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(actual.values()));
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+        assertEquals(expected.hashCode(), actual.hashCode());
+        assertEquals(expected.firstEntry(), actual.firstEntry());
+        assertEquals(expected.lastEntry(), actual.lastEntry());
+        for (K probe : probes) {
+            assertEquals(expected.get(probe), actual.get(probe));
+            assertEquals(expected.containsKey(probe), actual.containsKey(probe));
+            assertEquals(expected.lowerEntry(probe), actual.lowerEntry(probe));
+            assertEquals(expected.floorEntry(probe), actual.floorEntry(probe));
+            assertEquals(expected.ceilingEntry(probe), actual.ceilingEntry(probe));
+            assertEquals(expected.higherEntry(probe), actual.higherEntry(probe));
+            assertEquals(expected.lowerKey(probe), actual.lowerKey(probe));
+            assertEquals(expected.higherKey(probe), actual.higherKey(probe));
+        }
+    }
+
+    @Test
+    public void testNavigation() throws Exception {
+        Map<Integer, String> map = randomMap(500, 400);
+        TreeMap<Integer, String> treeMap = new TreeMap<>(map);
+        ArrayMap<Integer, String> arrayMap = new ArrayMap<>(map);
+        List<Integer> probes = new ArrayList<>();
+        for (int i = -250; i < 250; i++) {
+            probes.add(i);
+        }
+        assertSameMap(treeMap, arrayMap, probes);
+        assertSameMap(treeMap.descendingMap(), arrayMap.descendingMap(), probes);
+        assertSameMap(treeMap.headMap(10, true), arrayMap.headMap(10, true), probes);
+        assertSameMap(treeMap.tailMap(-10, false), arrayMap.tailMap(-10, false), probes);
+        assertSameMap(treeMap.subMap(-100, true, 100, false), arrayMap.subMap(-100, true, 100, false), probes);
+        assertSameMap(treeMap.descendingMap().headMap(0, false).tailMap(150, true),
+                arrayMap.descendingMap().headMap(0, false).tailMap(150, true), probes);
+        assertEquals(new ArrayList<>(treeMap.descendingKeySet()), new ArrayList<>(arrayMap.descendingKeySet()));
+        assertEquals(treeMap.descendingMap().comparator(), arrayMap.descendingMap().comparator());
+        assertNull(arrayMap.comparator());
+    }
+
+    @Test
+    public void testComparator() throws Exception {
+        Comparator<Integer> comparator = (a, b) -> Integer.compare(Math.abs(a), Math.abs(b));
+        Map<Integer, String> map = randomMap(300, 400);
+        TreeMap<Integer, String> treeMap = new TreeMap<>(comparator);
+        for (Map.Entry<Integer, String> entry : map.entrySet()) {
+            // TreeMap keeps the first key and the last value of equal keys
+            treeMap.put(entry.getKey(), entry.getValue());
+        }
+        ArrayMap<Integer, String> arrayMap = new ArrayMap<>(map, comparator);
+        List<Integer> probes = new ArrayList<>();
+        for (int i = -250; i < 250; i++) {
+            probes.add(i);
+        }
+        assertEquals(treeMap.size(), arrayMap.size());
+        assertSameMap(treeMap.descendingMap().subMap(150, true, 20, true),
+                arrayMap.descendingMap().subMap(150, true, 20, true), probes);
+        assertEquals(comparator, arrayMap.comparator());
+    }
+
+    @Test
+    public void testCreationFromSortedMap() throws Exception {
+        TreeMap<Integer, String> treeMap = new TreeMap<>(randomMap(100, 1000));
+        ArrayMap<Integer, String> arrayMap = new ArrayMap<>(treeMap);
+        assertEquals(treeMap, arrayMap);
+        ArrayMap<Integer, String> copy = new ArrayMap<>(arrayMap.descendingMap());
+        assertEquals(new ArrayList<>(treeMap.entrySet()), new ArrayList<>(copy.entrySet()));
+    }
+
+    @Test
+    public void testOfSorted() throws Exception {
+        TreeMap<Integer, String> treeMap = new TreeMap<>(randomMap(100, 1000));
+        ArrayMap<Integer, String> arrayMap = ArrayMap.ofSorted(treeMap.entrySet().stream());
+        assertSameMap(treeMap, arrayMap, new ArrayList<>(treeMap.keySet()));
+        ArrayMap<Integer, String> reversed = ArrayMap.ofSorted(treeMap.descendingMap().entrySet().stream(),
+                Collections.reverseOrder());
+        assertEquals(new ArrayList<>(treeMap.descendingKeySet()), new ArrayList<>(reversed.keySet()));
+        assertEquals(treeMap.floorKey(17), reversed.ceilingKey(17));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOfUnsorted() throws Exception {
+        ArrayMap.ofSorted(Arrays.asList(1, 3, 2).stream()
+                .map(i -> new AbstractMap.SimpleEntry<>(i, i)));
+    }
+
+    @Test
+    public void testKeySetView() throws Exception {
+        Map<Integer, Integer> map = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put(i, i * i);
+        }
+        ArrayMap<Integer, Integer> arrayMap = new ArrayMap<>(map);
+        NavigableSet<Integer> keys = arrayMap.descendingMap().tailMap(5, true).navigableKeySet();
+        assertEquals(Arrays.asList(5, 4, 3, 2, 1, 0), new ArrayList<>(keys));
+        assertEquals(Integer.valueOf(3), keys.higher(4));
+        assertEquals(Arrays.asList(3, 2), keys.stream().filter(i -> i > 1 && i < 4).collect(Collectors.toList()));
+        assertTrue(arrayMap.containsValue(81));
+        assertFalse(arrayMap.headMap(9).containsValue(81));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        ArrayMap<Integer, String> arrayMap = new ArrayMap<>();
+        assertEquals(0, arrayMap.size());
+        assertNull(arrayMap.firstEntry());
+        assertNull(arrayMap.floorKey(1));
+        assertNull(arrayMap.get(1));
+        assertTrue(arrayMap.entrySet().isEmpty());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testFirstKeyOfEmpty() throws Exception {
+        new ArrayMap<Integer, String>().firstKey();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPut() throws Exception {
+        new ArrayMap<Integer, String>().put(1, "1");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPollFirstEntry() throws Exception {
+        new ArrayMap<>(Collections.singletonMap(1, "1")).pollFirstEntry();
+    }
+}
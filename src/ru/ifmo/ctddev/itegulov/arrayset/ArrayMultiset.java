@@ -0,0 +1,262 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable sorted multiset (bag), which keeps distinct elements in an {@link ArraySet}
+ * and their multiplicities as prefix sums in a single {@code int[]}: {@code prefix[i]} is
+ * the total number of occurrences of the first {@code i} distinct elements. So it takes
+ * one reference and one {@code int} per distinct element, instead of a set plus a
+ * {@link HashMap} of boxed counts.
+ * <p>
+ * {@link #count}, {@link #rank}, {@link #countInRange} and {@link #select} (k-th element,
+ * taking multiplicities into account) work in O(log n). Iteration returns every element
+ * as many times as it occurs. Total number of occurrences can't exceed
+ * {@link Integer#MAX_VALUE}.
+ *
+ * @author Daniyar Itegulov
+ */
+public class ArrayMultiset<T> extends AbstractCollection<T> {
+    private final ArraySet<T> elements;
+    private final int[] prefix;
+
+    public ArrayMultiset() {
+        this(Collections.emptyList());
+    }
+
+    public ArrayMultiset(Collection<? extends T> collection) {
+        this(collection, ArraySet.naturalOrder(), true);
+    }
+
+    public ArrayMultiset(Collection<? extends T> collection, Comparator<T> comparator) {
+        this(collection, comparator, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArrayMultiset(Collection<? extends T> collection, Comparator<T> comparator, boolean isNatural) {
+        T[] array = (T[]) collection.toArray();
+        ArraySet.sort(array, array.length, comparator);
+        Object[] keys = new Object[array.length];
+        int[] prefix = new int[array.length + 1];
+        int size = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (size == 0 || comparator.compare((T) keys[size - 1], array[i]) != 0) {
+                keys[size++] = array[i];
+                prefix[size] = prefix[size - 1];
+            }
+            prefix[size]++;
+        }
+        this.elements = ArraySet.view(size == keys.length ? keys : Arrays.copyOf(keys, size), 0, size, false, comparator, isNatural);
+        this.prefix = size + 1 == prefix.length ? prefix : Arrays.copyOf(prefix, size + 1);
+    }
+
+    private ArrayMultiset(ArraySet<T> elements, int[] prefix) {
+        this.elements = elements;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Creates multiset from elements with given numbers of occurrences, ordered naturally.
+     *
+     * @param counts numbers of occurrences of elements, zero counts are ignored
+     * @param <T> type of elements
+     * @return new multiset
+     * @throws IllegalArgumentException if a count is negative or total count exceeds {@link Integer#MAX_VALUE}
+     */
+    public static <T> ArrayMultiset<T> ofCounts(Map<? extends T, Integer> counts) {
+        return ofCounts(counts, ArraySet.naturalOrder(), true);
+    }
+
+    /**
+     * Creates multiset from elements with given numbers of occurrences, ordered by given comparator.
+     *
+     * @param counts numbers of occurrences of elements, zero counts are ignored
+     * @param comparator comparator to use
+     * @param <T> type of elements
+     * @return new multiset
+     * @throws IllegalArgumentException if a count is negative, total count exceeds {@link Integer#MAX_VALUE}
+     * or map contains keys, which are equal according to the comparator
+     */
+    public static <T> ArrayMultiset<T> ofCounts(Map<? extends T, Integer> counts, Comparator<T> comparator) {
+        return ofCounts(counts, comparator, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ArrayMultiset<T> ofCounts(Map<? extends T, Integer> counts, Comparator<T> comparator,
+                                                 boolean isNatural) {
+        Map.Entry<T, Integer>[] entries = ArraySet.entries(counts);
+        ArraySet.sort(entries, entries.length, (a, b) -> comparator.compare(a.getKey(), b.getKey()));
+        Object[] keys = new Object[entries.length];
+        int[] prefix = new int[entries.length + 1];
+        int size = 0;
+        for (Map.Entry<T, Integer> entry : entries) {
+            int count = entry.getValue();
+            if (count < 0) {
+                throw new IllegalArgumentException("Negative count of " + entry.getKey() + ": " + count);
+            }
+            if (count == 0) {
+                continue;
+            }
+            if (size > 0 && comparator.compare((T) keys[size - 1], entry.getKey()) == 0) {
+                throw new IllegalArgumentException("Duplicate element: " + entry.getKey());
+            }
+            keys[size++] = entry.getKey();
+            if (prefix[size - 1] > Integer.MAX_VALUE - count) {
+                throw new IllegalArgumentException("Too many elements");
+            }
+            prefix[size] = prefix[size - 1] + count;
+        }
+        ArraySet<T> elements = ArraySet.view(Arrays.copyOf(keys, size), 0, size, false, comparator, isNatural);
+        return new ArrayMultiset<>(elements, Arrays.copyOf(prefix, size + 1));
+    }
+
+    /**
+     * @return set of distinct elements of this multiset
+     */
+    public ArraySet<T> elementSet() {
+        return elements;
+    }
+
+    /**
+     * Returns number of occurrences of given element in this multiset.
+     *
+     * @param o element to count
+     * @return number of occurrences of {@code o}, or {@code 0} if it's not contained
+     */
+    @SuppressWarnings("unchecked")
+    public int count(Object o) {
+        int index = elements.indexOf((T) o);
+        return index < 0 ? 0 : prefix[index + 1] - prefix[index];
+    }
+
+    /**
+     * Returns number of occurrences of elements, which are strictly less than given one.
+     *
+     * @param t element to compare with
+     * @return number of elements less than {@code t}, counting multiplicities
+     */
+    public int rank(T t) {
+        return prefix[elements.rank(t)];
+    }
+
+    /**
+     * @return number of distinct elements less than (or equal to, if {@code inclusive}) given one
+     */
+    private int position(T t, boolean inclusive) {
+        int index = elements.indexOf(t);
+        if (index < 0) {
+            return elements.rank(t);
+        }
+        return inclusive ? index + 1 : index;
+    }
+
+    /**
+     * Returns number of occurrences of elements in the range from {@code fromElement} to {@code toElement}.
+     *
+     * @param fromElement low endpoint of the range
+     * @param fromInclusive {@code true} if the low endpoint is to be counted
+     * @param toElement high endpoint of the range
+     * @param toInclusive {@code true} if the high endpoint is to be counted
+     * @return number of elements in the range, counting multiplicities, or {@code 0}
+     * if {@code fromElement} is greater than {@code toElement}
+     */
+    public int countInRange(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        int from = position(fromElement, !fromInclusive);
+        int to = position(toElement, toInclusive);
+        return from < to ? prefix[to] - prefix[from] : 0;
+    }
+
+    /**
+     * Returns element with given index in sorted sequence of all occurrences of elements.
+     *
+     * @param index index of the occurrence
+     * @return element, preceded by exactly {@code index} occurrences of elements less than
+     * or equal to it
+     * @throws IndexOutOfBoundsException if index is out of range ({@code index < 0 || index >= size()})
+     */
+    public T select(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return elements.select(distinctIndex(index));
+    }
+
+    /**
+     * @return index of the distinct element, which contains occurrence with given index
+     */
+    private int distinctIndex(int index) {
+        // the last i, such that prefix[i] <= index
+        int low = 0;
+        int high = prefix.length - 1;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (prefix[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return elements.contains(o);
+    }
+
+    @Override
+    public int size() {
+        return prefix[prefix.length - 1];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return elements.isEmpty();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int index = 0;
+            private int distinct = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public T next() {
+                if (index >= size()) {
+                    throw new NoSuchElementException();
+                }
+                while (prefix[distinct + 1] <= index) {
+                    distinct++;
+                }
+                index++;
+                return elements.select(distinct);
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ArrayMultiset)) {
+            return false;
+        }
+        ArrayMultiset<?> other = (ArrayMultiset<?>) o;
+        return Arrays.equals(prefix, other.prefix) && elements.equals(other.elements);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i + 1 < prefix.length; i++) {
+            hash += Objects.hashCode(elements.select(i)) ^ (prefix[i + 1] - prefix[i]);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,138 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ArrayMultisetTest {
+    private static final Random RANDOM = new Random(3239);
+
+    private static List<Integer> randomList(int size, int bound) {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(RANDOM.nextInt(bound));
+        }
+        return list;
+    }
+
+    @Test
+    public void testCounts() throws Exception {
+        List<Integer> values = randomList(3000, 500);
+        ArrayMultiset<Integer> multiset = new ArrayMultiset<>(values);
+        List<Integer> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        assertEquals(sorted.size(), multiset.size());
+        assertEquals(sorted, new ArrayList<>(multiset));
+        assertEquals(new TreeSet<>(values), multiset.elementSet());
+        for (int i = -1; i <= 500; i++) {
+            int value = i;
+            assertEquals(values.stream().filter(v -> v == value).count(), multiset.count(i));
+            assertEquals(values.stream().filter(v -> v < value).count(), multiset.rank(i));
+            assertEquals(values.contains(i), multiset.contains(i));
+        }
+        for (int i = 0; i < sorted.size(); i++) {
+            assertEquals(sorted.get(i), multiset.select(i));
+        }
+        assertEquals(0, multiset.count(1000));
+    }
+
+    @Test
+    public void testCountInRange() throws Exception {
+        List<Integer> values = randomList(2000, 200);
+        ArrayMultiset<Integer> multiset = new ArrayMultiset<>(values);
+        for (int i = 0; i < 500; i++) {
+            int from = RANDOM.nextInt(220) - 10;
+            int to = RANDOM.nextInt(220) - 10;
+            boolean fromInclusive = RANDOM.nextBoolean();
+            boolean toInclusive = RANDOM.nextBoolean();
+            long expected = values.stream()
+                    .filter(v -> fromInclusive ? v >= from : v > from)
+                    .filter(v -> toInclusive ? v <= to : v < to)
+                    .count();
+            assertEquals(expected, multiset.countInRange(from, fromInclusive, to, toInclusive));
+        }
+    }
+
+    @Test
+    public void testComparator() throws Exception {
+        Comparator<String> comparator = String.CASE_INSENSITIVE_ORDER;
+        ArrayMultiset<String> multiset = new ArrayMultiset<>(Arrays.asList("b", "A", "a", "B", "c", "b"), comparator);
+        assertEquals(6, multiset.size());
+        assertEquals(2, multiset.count("a"));
+        assertEquals(3, multiset.count("B"));
+        assertEquals(5, multiset.countInRange("A", true, "b", true));
+        assertEquals("c", multiset.select(5));
+        assertEquals(Arrays.asList("A", "b", "c"), new ArrayList<>(multiset.elementSet()));
+    }
+
+    @Test
+    public void testOfCounts() throws Exception {
+        Map<String, Integer> counts = new HashMap<>();
+        counts.put("x", 3);
+        counts.put("a", 1);
+        counts.put("m", 0);
+        counts.put("k", 2);
+        ArrayMultiset<String> multiset = ArrayMultiset.ofCounts(counts);
+        assertEquals(Arrays.asList("a", "k", "k", "x", "x", "x"), new ArrayList<>(multiset));
+        assertFalse(multiset.contains("m"));
+        assertEquals("x", multiset.select(3));
+        assertEquals(new ArrayMultiset<>(Arrays.asList("x", "k", "x", "a", "k", "x")), multiset);
+        assertEquals(new ArrayMultiset<>(Arrays.asList("x", "k", "x", "a", "k", "x")).hashCode(), multiset.hashCode());
+        assertFalse(multiset.equals(new ArrayMultiset<>(Arrays.asList("x", "k", "a", "k", "x"))));
+    }
+
+    @Test
+    public void testCreationFromDescendingView() throws Exception {
+        List<Integer> values = randomList(1000, 5000);
+        TreeSet<Integer> expected = new TreeSet<>(values);
+        ArrayMultiset<Integer> multiset = new ArrayMultiset<>(new ArraySet<>(values).descendingSet());
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(multiset));
+        for (int i = 0; i < multiset.size(); i += 13) {
+            Integer value = new ArrayList<>(expected).get(i);
+            assertEquals(1, multiset.count(value));
+            assertEquals(i, multiset.rank(value));
+            assertEquals(value, multiset.select(i));
+        }
+        Map<Integer, Integer> counts = new TreeMap<>(Collections.reverseOrder());
+        counts.put(1, 2);
+        counts.put(5, 1);
+        counts.put(3, 3);
+        assertEquals(Arrays.asList(1, 1, 3, 3, 3, 5), new ArrayList<>(ArrayMultiset.ofCounts(counts)));
+        assertEquals(Arrays.asList(1, 1, 3, 3, 3, 5), new ArrayList<>(ArrayMultiset.ofCounts(new ArrayMap<>(counts).descendingMap())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOfNegativeCounts() throws Exception {
+        ArrayMultiset.ofCounts(Collections.singletonMap("a", -1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOfTooManyCounts() throws Exception {
+        Map<String, Integer> counts = new TreeMap<>();
+        counts.put("a", Integer.MAX_VALUE);
+        counts.put("b", 1);
+        ArrayMultiset.ofCounts(counts);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        ArrayMultiset<Integer> multiset = new ArrayMultiset<>();
+        assertEquals(0, multiset.size());
+        assertTrue(multiset.isEmpty());
+        assertEquals(0, multiset.count(1));
+        assertEquals(0, multiset.countInRange(0, true, 10, true));
+        assertFalse(multiset.iterator().hasNext());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSelectOutOfRange() throws Exception {
+        new ArrayMultiset<>(Arrays.asList(1, 1, 2)).select(3);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAdd() throws Exception {
+        new ArrayMultiset<>(Arrays.asList(1, 1, 2)).add(3);
+    }
+}
@@ -1,110 +1,568 @@
 package ru.ifmo.ctddev.itegulov.arrayset;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * @author Daniyar Itegulov
  * @since 19.02.15
  */
 public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
-    private static class ReversedUnmodifiableList<T> extends AbstractList<T> implements RandomAccess {
-        private final List<T> list;
+    private static class ArraySetSpliterator<T> implements Spliterator<T> {
+        private final Object[] elements;
+        private final int base;
+        private final int step;
+        private final Comparator<? super T> comparator;
+        private final int characteristics;
+        private int index;
+        private final int fence;
+
+        /**
+         * Creates spliterator over {@code elements[base + step * i]} for {@code i} in {@code [index, fence)}.
+         */
+        private ArraySetSpliterator(Object[] elements, int base, int step, int index, int fence,
+                                    Comparator<? super T> comparator, int characteristics) {
+            this.elements = elements;
+            this.base = base;
+            this.step = step;
+            this.index = index;
+            this.fence = fence;
+            this.comparator = comparator;
+            this.characteristics = characteristics;
+        }
 
-        public static <T> List<T> getInstance(List<T> list) {
-            return Collections.unmodifiableList(new ReversedUnmodifiableList<>(list));
+        @SuppressWarnings("unchecked")
+        private T get(int i) {
+            return (T) elements[base + step * i];
         }
 
-        private ReversedUnmodifiableList(List<T> list) {
-            this.list = list;
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index < fence) {
+                action.accept(get(index++));
+                return true;
+            }
+            return false;
         }
 
         @Override
-        public T get(int index) {
-            return list.get(list.size() - 1 - index);
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (; index < fence; index++) {
+                action.accept(get(index));
+            }
         }
 
         @Override
-        public int size() {
-            return list.size();
+        public Spliterator<T> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            Spliterator<T> prefix = new ArraySetSpliterator<>(elements, base, step, index, mid, comparator, characteristics);
+            index = mid;
+            return prefix;
         }
 
         @Override
-        public List<T> subList(int fromIndex, int toIndex) {
-            return new ReversedUnmodifiableList<>(list.subList(list.size() - toIndex, list.size() - fromIndex));
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return comparator;
         }
     }
 
-    private final List<T> list;
-    private Comparator<T> comparator;
-    private Comparator<T> equalsComparator = (x, y) -> {
-        if (comparator.compare(x, y) == 0) {
-            return 1;
+    private class ArraySetIterator implements Iterator<T> {
+        private final int step;
+        private int index;
+        private final int fence;
+
+        /**
+         * Creates iterator over {@code elements[index]}, {@code elements[index + step]}, ...
+         * up to (but not including) {@code elements[fence]}.
+         */
+        private ArraySetIterator(int index, int fence, int step) {
+            this.index = index;
+            this.fence = fence;
+            this.step = step;
         }
-        return comparator.compare(x, y);
-    };
-    private boolean isNatural = false;
+
+        @Override
+        public boolean hasNext() {
+            return index != fence;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T next() {
+            if (index == fence) {
+                throw new NoSuchElementException();
+            }
+            T element = (T) elements[index];
+            index += step;
+            return element;
+        }
+    }
+
+    /**
+     * Elements of the original set, sorted by {@link #comparator}. Views share this array
+     * with the original set and see only its part {@code [from, to)}, possibly in reverse order.
+     */
+    private final Object[] elements;
+    private final int from;
+    private final int to;
+    private final boolean descending;
+    private final Comparator<T> comparator;
+    private final boolean isNatural;
 
     public ArraySet() {
         this(new ArrayList<>());
     }
 
     public ArraySet(Collection<? extends T> collection) {
-        this(collection, (x, y) -> {
-            @SuppressWarnings("unchecked")
-            Comparable<? super T> comparable = (Comparable<? super T>) x;
-            return comparable.compareTo(y);
-        });
-        isNatural = true;
+        this(sortedUnique(collection, naturalOrder()), naturalOrder(), true);
     }
 
-    @SuppressWarnings("unchecked")
     public ArraySet(Collection<? extends T> collection, Comparator<T> comparator) {
-        TreeSet<T> treeSet = new TreeSet<>(comparator);
-        treeSet.addAll(collection);
-        list = Collections.unmodifiableList(Arrays.asList((T[]) treeSet.toArray()));
-        this.comparator = comparator;
+        this(sortedUnique(collection, comparator), comparator, false);
+    }
+
+    private ArraySet(Object[] elements, Comparator<T> comparator, boolean isNatural) {
+        this(elements, 0, elements.length, false, comparator, isNatural);
     }
 
-    private ArraySet(List<T> list, Comparator<T> comparator, boolean isNatural) {
-        this.list = list;
+    private ArraySet(Object[] elements, int from, int to, boolean descending,
+                     Comparator<T> comparator, boolean isNatural) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
         this.comparator = comparator;
         this.isNatural = isNatural;
     }
 
-    private int binSearch(T key, Comparator<? super T> comparator) {
-        int index = Collections.binarySearch(list, key, comparator);
-        if (index < 0) {
-            return -index - 2;
+    /**
+     * Creates view of the part {@code [from, to)} of array, which is sorted by {@code comparator}
+     * and contains no duplicates. Array is not copied.
+     */
+    static <T> ArraySet<T> view(Object[] elements, int from, int to, boolean descending,
+                                Comparator<T> comparator, boolean isNatural) {
+        return new ArraySet<>(elements, from, to, descending, comparator, isNatural);
+    }
+
+    private static final Comparator<Object> NATURAL_ORDER = (x, y) -> {
+        @SuppressWarnings("unchecked")
+        Comparable<Object> comparable = (Comparable<Object>) x;
+        return comparable.compareTo(y);
+    };
+
+    @SuppressWarnings("unchecked")
+    static <T> Comparator<T> naturalOrder() {
+        return (Comparator<T>) NATURAL_ORDER;
+    }
+
+    /**
+     * Order of a {@link SortedSet} isn't taken from its {@code comparator()}, which is {@code null} for descending
+     * views of naturally ordered sets, but checked by {@link #sortedUnique(Object[], int, Comparator)} in linear time.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Object[] sortedUnique(Collection<? extends T> collection, Comparator<T> comparator) {
+        T[] array = (T[]) collection.toArray();
+        return sortedUnique(array, array.length, comparator);
+    }
+
+    /**
+     * Checks whether sorted collection with given comparator is ordered in the same way as a set with
+     * {@code comparator}.
+     */
+    static boolean sameOrder(Comparator<?> setComparator, Comparator<?> comparator, boolean isNatural) {
+        if (isNatural) {
+            return setComparator == null || setComparator.equals(Comparator.naturalOrder());
         }
-        return index;
+        return comparator.equals(setComparator);
     }
 
-    private T get(int pos) {
-        if (pos >= 0 && pos <= list.size() - 1) {
-            return list.get(pos);
-        } else {
-            return null;
+    /**
+     * Copies entries of the map to a typed array, which may be modified.
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> Map.Entry<K, V>[] entries(Map<? extends K, ? extends V> map) {
+        return map.entrySet().toArray((Map.Entry<K, V>[]) new Map.Entry<?, ?>[map.size()]);
+    }
+
+    /**
+     * Sorts first {@code size} elements of given array with {@link Arrays#parallelSort},
+     * unless one linear pass shows, that they are already sorted.
+     */
+    static <T> void sort(T[] array, int size, Comparator<? super T> comparator) {
+        boolean sorted = true;
+        for (int i = 1; i < size && sorted; i++) {
+            sorted = comparator.compare(array[i - 1], array[i]) <= 0;
+        }
+        if (!sorted) {
+            Arrays.parallelSort(array, 0, size, comparator);
+        }
+    }
+
+    /**
+     * Sorts first {@code size} elements of given array (unless they are already sorted)
+     * and removes duplicates in one linear pass. Array may be modified.
+     */
+    private static <T> T[] sortedUnique(T[] array, int size, Comparator<T> comparator) {
+        sort(array, size, comparator);
+        int unique = size == 0 ? 0 : 1;
+        for (int i = 1; i < size; i++) {
+            if (comparator.compare(array[unique - 1], array[i]) != 0) {
+                array[unique++] = array[i];
+            }
+        }
+        return unique == array.length ? array : Arrays.copyOf(array, unique);
+    }
+
+    /**
+     * Builder, which accumulates elements and creates {@link ArraySet} from them
+     * without intermediate {@link java.util.TreeSet}. If added elements are already
+     * sorted, set is built in O(n), otherwise they are sorted with
+     * {@link java.util.Arrays#parallelSort}.
+     *
+     * @param <T> type of elements
+     */
+    public static class Builder<T> {
+        private final Comparator<T> comparator;
+        private final boolean isNatural;
+        private Object[] elements = new Object[16];
+        private int size = 0;
+
+        /**
+         * Creates builder for a set with natural ordering of elements.
+         */
+        public Builder() {
+            this(naturalOrder(), true);
+        }
+
+        /**
+         * Creates builder for a set ordered by given comparator.
+         *
+         * @param comparator comparator to use
+         */
+        public Builder(Comparator<T> comparator) {
+            this(comparator, false);
+        }
+
+        private Builder(Comparator<T> comparator, boolean isNatural) {
+            this.comparator = comparator;
+            this.isNatural = isNatural;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > elements.length) {
+                elements = Arrays.copyOf(elements, Math.max(capacity, elements.length * 2));
+            }
+        }
+
+        /**
+         * Adds element to the future set.
+         *
+         * @param element element to add
+         * @return this builder
+         */
+        public Builder<T> add(T element) {
+            ensureCapacity(size + 1);
+            elements[size++] = element;
+            return this;
+        }
+
+        /**
+         * Adds all elements of collection to the future set.
+         *
+         * @param collection elements to add
+         * @return this builder
+         */
+        public Builder<T> addAll(Collection<? extends T> collection) {
+            ensureCapacity(size + collection.size());
+            for (T element : collection) {
+                elements[size++] = element;
+            }
+            return this;
+        }
+
+        /**
+         * Creates set of all added elements. Builder can't be used after that.
+         *
+         * @return new set
+         */
+        @SuppressWarnings("unchecked")
+        public ArraySet<T> build() {
+            T[] array = sortedUnique((T[]) elements, size, comparator);
+            elements = null;
+            return new ArraySet<>(array, comparator, isNatural);
+        }
+    }
+
+    /**
+     * Returns set of elements, which are contained in at least one of given sets.
+     * Sets must be ordered by the same comparator.
+     *
+     * @param first first set
+     * @param second second set
+     * @param <T> type of elements
+     * @return union of sets
+     * @throws IllegalArgumentException if sets are ordered differently
+     */
+    public static <T> ArraySet<T> union(ArraySet<T> first, ArraySet<T> second) {
+        return merge(first, second, SetMerger.UNION);
+    }
+
+    /**
+     * Returns set of elements, which are contained in both given sets.
+     * Sets must be ordered by the same comparator.
+     *
+     * @param first first set
+     * @param second second set
+     * @param <T> type of elements
+     * @return intersection of sets
+     * @throws IllegalArgumentException if sets are ordered differently
+     */
+    public static <T> ArraySet<T> intersection(ArraySet<T> first, ArraySet<T> second) {
+        return merge(first, second, SetMerger.INTERSECTION);
+    }
+
+    /**
+     * Returns set of elements, which are contained in the first set, but not in the second one.
+     * Sets must be ordered by the same comparator.
+     *
+     * @param first first set
+     * @param second second set
+     * @param <T> type of elements
+     * @return difference of sets
+     * @throws IllegalArgumentException if sets are ordered differently
+     */
+    public static <T> ArraySet<T> difference(ArraySet<T> first, ArraySet<T> second) {
+        return merge(first, second, SetMerger.DIFFERENCE);
+    }
+
+    /**
+     * Returns set of elements, which are contained in exactly one of given sets.
+     * Sets must be ordered by the same comparator.
+     *
+     * @param first first set
+     * @param second second set
+     * @param <T> type of elements
+     * @return symmetric difference of sets
+     * @throws IllegalArgumentException if sets are ordered differently
+     */
+    public static <T> ArraySet<T> symmetricDifference(ArraySet<T> first, ArraySet<T> second) {
+        return merge(first, second, SetMerger.SYMMETRIC_DIFFERENCE);
+    }
+
+    private static <T> ArraySet<T> merge(ArraySet<T> first, ArraySet<T> second, int mode) {
+        if (!first.comparator.equals(second.comparator) || first.descending != second.descending) {
+            throw new IllegalArgumentException("Sets are ordered by different comparators");
+        }
+        // both sets are ordered in the same direction, so it's enough to merge ascending ranges
+        Object[] result = new SetMerger<>(first.elements, first.from, first.to,
+                second.elements, second.from, second.to, first.comparator, mode).merge();
+        return new ArraySet<>(result, 0, result.length, first.descending, first.comparator, first.isNatural);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int search(T key) {
+        return Arrays.binarySearch((T[]) elements, from, to, key, comparator);
+    }
+
+    private int ascendingLower(T key) {
+        int index = search(key);
+        return index >= 0 ? index - 1 : -index - 2;
+    }
+
+    private int ascendingFloor(T key) {
+        int index = search(key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private int ascendingCeiling(T key) {
+        int index = search(key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private int ascendingHigher(T key) {
+        int index = search(key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T elementAt(int index) {
+        return index >= from && index < to ? (T) elements[index] : null;
+    }
+
+    /**
+     * Returns number of elements, which precede given one in this set's order
+     * (including element itself, if it's contained in this set and {@code inclusive} is set).
+     */
+    private int position(T t, boolean inclusive) {
+        if (descending) {
+            return to - (inclusive ? ascendingCeiling(t) : ascendingHigher(t));
         }
+        return (inclusive ? ascendingHigher(t) : ascendingCeiling(t)) - from;
     }
 
     @Override
     public T lower(T t) {
-        return get(binSearch(t, equalsComparator));
+        return elementAt(descending ? ascendingHigher(t) : ascendingLower(t));
     }
 
     @Override
     public T floor(T t) {
-        return get(binSearch(t, comparator));
+        return elementAt(descending ? ascendingCeiling(t) : ascendingFloor(t));
     }
 
     @Override
     public T ceiling(T t) {
-        return get(binSearch(t, equalsComparator) + 1);
+        return elementAt(descending ? ascendingFloor(t) : ascendingCeiling(t));
     }
 
     @Override
     public T higher(T t) {
-        return get(binSearch(t, comparator) + 1);
+        return elementAt(descending ? ascendingLower(t) : ascendingHigher(t));
+    }
+
+    /**
+     * Returns number of elements in this set, which are strictly less than given one.
+     * Works in O(log n) and doesn't create any objects.
+     *
+     * @param t element to compare with
+     * @return number of elements less than {@code t}
+     */
+    public int rank(T t) {
+        return position(t, false);
+    }
+
+    /**
+     * Returns element of this set with given index in its order.
+     *
+     * @param index index of the element
+     * @return element, preceded by exactly {@code index} elements
+     * @throws IndexOutOfBoundsException if index is out of range
+     * ({@code index < 0 || index >= size()})
+     */
+    @SuppressWarnings("unchecked")
+    public T select(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return (T) elements[descending ? to - 1 - index : from + index];
+    }
+
+    /**
+     * Returns index of given element in this set's order.
+     *
+     * @param t element to search for
+     * @return index of {@code t}, or {@code -1} if this set doesn't contain it
+     */
+    public int indexOf(T t) {
+        int index = search(t);
+        if (index < 0) {
+            return -1;
+        }
+        return descending ? to - 1 - index : index - from;
+    }
+
+    /**
+     * Returns number of elements in the range, which would be contained in
+     * {@code subSet(fromElement, fromInclusive, toElement, toInclusive)}, without creating it.
+     *
+     * @param fromElement low endpoint of the range
+     * @param fromInclusive {@code true} if the low endpoint is to be counted
+     * @param toElement high endpoint of the range
+     * @param toInclusive {@code true} if the high endpoint is to be counted
+     * @return number of elements in the range, or {@code 0} if {@code fromElement}
+     * is greater than {@code toElement}
+     */
+    public int countInRange(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return Math.max(0, position(toElement, toInclusive) - position(fromElement, !fromInclusive));
+    }
+
+    /**
+     * @return for every query, index of the first element in the ascending range,
+     * which is not less than it
+     */
+    private int[] ascendingCeilings(Object[] queries) {
+        return new BatchSearcher<>(elements, from, to, comparator).lowerBounds(queries);
+    }
+
+    /**
+     * Checks presence of every given element in this set at once. Queries may be in any
+     * order, but if they are sorted in this set's order, the whole batch takes close to
+     * linear time in the number of queries instead of O(log n) per query; large batches
+     * are processed in parallel.
+     *
+     * @param queries elements to search for
+     * @return set of indices {@code i}, such that this set contains {@code queries.get(i)}
+     */
+    @SuppressWarnings("unchecked")
+    public BitSet containsEach(List<? extends T> queries) {
+        Object[] array = queries.toArray();
+        int[] ceilings = ascendingCeilings(array);
+        BitSet result = new BitSet(ceilings.length);
+        for (int i = 0; i < ceilings.length; i++) {
+            int index = ceilings[i];
+            if (index < to && comparator.compare(elementAt(index), (T) array[i]) == 0) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Same as calling {@link #floor} for every given element, but faster for sorted
+     * queries, see {@link #containsEach}.
+     *
+     * @param queries elements to match
+     * @return list, which {@code i}-th element is {@code floor(queries.get(i))}
+     */
+    public List<T> floorAll(List<? extends T> queries) {
+        Object[] array = queries.toArray();
+        return descending ? ascendingCeilingAll(array) : ascendingFloorAll(array);
+    }
+
+    /**
+     * Same as calling {@link #ceiling} for every given element, but faster for sorted
+     * queries, see {@link #containsEach}.
+     *
+     * @param queries elements to match
+     * @return list, which {@code i}-th element is {@code ceiling(queries.get(i))}
+     */
+    public List<T> ceilingAll(List<? extends T> queries) {
+        Object[] array = queries.toArray();
+        return descending ? ascendingFloorAll(array) : ascendingCeilingAll(array);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> ascendingFloorAll(Object[] queries) {
+        int[] ceilings = ascendingCeilings(queries);
+        List<T> result = new ArrayList<>(ceilings.length);
+        for (int i = 0; i < ceilings.length; i++) {
+            int index = ceilings[i];
+            T element = elementAt(index);
+            result.add(element != null && comparator.compare(element, (T) queries[i]) == 0 ? element : elementAt(index - 1));
+        }
+        return result;
+    }
+
+    private List<T> ascendingCeilingAll(Object[] queries) {
+        int[] ceilings = ascendingCeilings(queries);
+        List<T> result = new ArrayList<>(ceilings.length);
+        for (int ceiling : ceilings) {
+            result.add(elementAt(ceiling));
+        }
+        return result;
     }
 
     @Override
@@ -119,29 +577,39 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     @Override
     public Iterator<T> iterator() {
-        return list.iterator();
+        return descending ? new ArraySetIterator(to - 1, from - 1, -1) : new ArraySetIterator(from, to, 1);
+    }
+
+    /**
+     * Creates spliterator over elements of this set, which splits exactly in half and reports
+     * {@link Spliterator#SIZED}, {@link Spliterator#SUBSIZED}, {@link Spliterator#ORDERED},
+     * {@link Spliterator#SORTED}, {@link Spliterator#DISTINCT} and {@link Spliterator#IMMUTABLE}.
+     * Naturally ordered sets can't contain {@code null}, so they also report {@link Spliterator#NONNULL}.
+     *
+     * @return spliterator over elements of this set
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        int characteristics = Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED
+                | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.IMMUTABLE;
+        if (isNatural) {
+            characteristics |= Spliterator.NONNULL;
+        }
+        Comparator<? super T> order = descending ? Collections.reverseOrder(comparator)
+                : comparator == NATURAL_ORDER ? null : comparator;
+        return descending
+                ? new ArraySetSpliterator<>(elements, to - 1, -1, 0, size(), order, characteristics)
+                : new ArraySetSpliterator<>(elements, from, 1, 0, size(), order, characteristics);
     }
 
     @Override
     public NavigableSet<T> descendingSet() {
-        return new ArraySet<>(ReversedUnmodifiableList.getInstance(list), Collections.reverseOrder(comparator), isNatural);
+        return new ArraySet<>(elements, from, to, !descending, comparator, isNatural);
     }
 
     @Override
     public Iterator<T> descendingIterator() {
-        return new Iterator<T>() {
-            private ListIterator<T> iterator = list.listIterator(list.size());
-
-            @Override
-            public boolean hasNext() {
-                return iterator.hasPrevious();
-            }
-
-            @Override
-            public T next() {
-                return iterator.previous();
-            }
-        };
+        return descending ? new ArraySetIterator(from, to, 1) : new ArraySetIterator(to - 1, from - 1, -1);
     }
 
     @Override
@@ -151,26 +619,30 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     @Override
     public NavigableSet<T> headSet(T toElement, boolean inclusive) {
-        int toIndex = binSearch(toElement, comparator);
-        if (!inclusive && toIndex != -1 && comparator.compare(toElement, list.get(toIndex)) == 0) {
-            toIndex--;
+        if (descending) {
+            int newFrom = inclusive ? ascendingCeiling(toElement) : ascendingHigher(toElement);
+            return new ArraySet<>(elements, newFrom, to, true, comparator, isNatural);
         }
-        return new ArraySet<>(list.subList(0, toIndex + 1), comparator, isNatural);
+        int newTo = inclusive ? ascendingHigher(toElement) : ascendingCeiling(toElement);
+        return new ArraySet<>(elements, from, newTo, false, comparator, isNatural);
     }
 
     @Override
     public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
-        int fromIndex = binSearch(fromElement, equalsComparator) + 1;
-        if (fromIndex == -1 || fromIndex != list.size() &&
-                (!inclusive && comparator.compare(fromElement, list.get(fromIndex)) == 0)) {
-            fromIndex++;
+        if (descending) {
+            int newTo = inclusive ? ascendingHigher(fromElement) : ascendingCeiling(fromElement);
+            return new ArraySet<>(elements, from, newTo, true, comparator, isNatural);
         }
-        return new ArraySet<>(list.subList(fromIndex, list.size()), comparator, isNatural);
+        int newFrom = inclusive ? ascendingCeiling(fromElement) : ascendingHigher(fromElement);
+        return new ArraySet<>(elements, newFrom, to, false, comparator, isNatural);
     }
 
     @Override
     public Comparator<? super T> comparator() {
-        return isNatural ? null : comparator;
+        if (isNatural) {
+            return null;
+        }
+        return descending ? Collections.reverseOrder(comparator) : comparator;
     }
 
     @Override
@@ -188,30 +660,41 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         return tailSet(fromElement, true);
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public T first() {
-        if (list.isEmpty()) {
+        if (from == to) {
             throw new NoSuchElementException();
         }
-        return list.get(0);
+        return (T) elements[descending ? to - 1 : from];
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public T last() {
-        if (list.isEmpty()) {
+        if (from == to) {
             throw new NoSuchElementException();
         }
-        return list.get(list.size() - 1);
+        return (T) elements[descending ? from : to - 1];
     }
 
     @Override
     public int size() {
-        return list.size();
+        return to - from;
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] result = Arrays.copyOfRange(elements, from, to);
+        if (descending) {
+            Collections.reverse(Arrays.asList(result));
+        }
+        return result;
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public boolean contains(Object o) {
-        return Collections.binarySearch(list, (T) o, comparator) >= 0;
+        return search((T) o) >= 0;
     }
-}
\ No newline at end of file
+}
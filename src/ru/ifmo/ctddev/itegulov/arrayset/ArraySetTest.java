@@ -4,6 +4,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -299,6 +300,227 @@ public class ArraySetTest {
         assertTrue(descendingSet.containsAll(generateList(9, 7, 6, 3, 1)));
     }
 
+    @Test
+    public void testCreationFromSortedSet() throws Exception {
+        TreeSet<Integer> treeSet = new TreeSet<>(valuesWithDuplication);
+        assertEqualsSet(new ArraySet<>(treeSet), values);
+
+        TreeSet<Integer> reversed = new TreeSet<>(Collections.reverseOrder());
+        reversed.addAll(valuesWithDuplication);
+        assertEqualsSet(new ArraySet<>(reversed), values);
+        assertEqualsSet(new ArraySet<>(reversed, NATURAL_ORDER), values);
+    }
+
+    @Test
+    public void testCreationFromDescendingView() throws Exception {
+        ArraySet<Integer> descending = (ArraySet<Integer>) new ArraySet<>(valuesWithDuplication).descendingSet();
+        ArraySet<Integer> set = new ArraySet<>(descending);
+        assertEqualsSet(set, values);
+        for (Integer value : values) {
+            assertTrue(set.contains(value));
+        }
+        assertEqualsSet(new ArraySet<>(descending.headSet(values.get(2), true)), values.subList(2, values.size()));
+        assertEqualsSet(new ArraySet<>(descending, NATURAL_ORDER), values);
+    }
+
+    @Test
+    public void testBuilder() throws Exception {
+        ArraySet.Builder<Integer> builder = new ArraySet.Builder<>();
+        for (int i = 0; i < 100; i++) {
+            builder.add(i % 10);
+        }
+        assertEqualsSet(builder.addAll(values).build(), generateList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+
+        ArraySet<Integer> sorted = new ArraySet.Builder<>(NATURAL_ORDER).addAll(values).build();
+        assertEqualsSet(sorted, values);
+        assertEquals(NATURAL_ORDER, sorted.comparator());
+
+        assertEqualsSet(new ArraySet.Builder<Integer>().build(), generateList());
+    }
+
+    private static void assertSetAlgebra(List<Integer> first, List<Integer> second) {
+        ArraySet<Integer> a = new ArraySet<>(first);
+        ArraySet<Integer> b = new ArraySet<>(second);
+
+        TreeSet<Integer> expected = new TreeSet<>(first);
+        expected.addAll(second);
+        assertEqualsSet(ArraySet.union(a, b), new ArrayList<>(expected));
+
+        expected = new TreeSet<>(first);
+        expected.retainAll(second);
+        assertEqualsSet(ArraySet.intersection(a, b), new ArrayList<>(expected));
+
+        expected = new TreeSet<>(first);
+        expected.removeAll(second);
+        assertEqualsSet(ArraySet.difference(a, b), new ArrayList<>(expected));
+
+        TreeSet<Integer> inSecondOnly = new TreeSet<>(second);
+        inSecondOnly.removeAll(first);
+        expected.addAll(inSecondOnly);
+        assertEqualsSet(ArraySet.symmetricDifference(a, b), new ArrayList<>(expected));
+    }
+
+    private static List<Integer> randomList(Random random, int size, int bound) {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(random.nextInt(bound));
+        }
+        return list;
+    }
+
+    @Test
+    public void testSetAlgebra() throws Exception {
+        Random random = new Random(239);
+        assertSetAlgebra(generateList(), generateList());
+        assertSetAlgebra(values, generateList());
+        assertSetAlgebra(generateList(1, 3, 5, 7), generateList(2, 3, 4, 5));
+        assertSetAlgebra(randomList(random, 1000, 2000), randomList(random, 1000, 2000));
+        assertSetAlgebra(randomList(random, 10000, 20000), randomList(random, 10, 20000));
+        assertSetAlgebra(randomList(random, 5, 20000), randomList(random, 10000, 20000));
+        assertSetAlgebra(randomList(random, 200000, 400000), randomList(random, 100000, 400000));
+        assertSetAlgebra(randomList(random, 200000, 400000), randomList(random, 1000, 400000));
+    }
+
+    @Test
+    public void testSetAlgebraOfDescendingSets() throws Exception {
+        NavigableSet<Integer> a = generateArraySet(1, 2, 3, 5, 8).descendingSet();
+        NavigableSet<Integer> b = generateArraySet(2, 4, 8, 16).descendingSet();
+        assertEqualsSet(ArraySet.union((ArraySet<Integer>) a, (ArraySet<Integer>) b), generateList(16, 8, 5, 4, 3, 2, 1));
+        assertEqualsSet(ArraySet.intersection((ArraySet<Integer>) a, (ArraySet<Integer>) b), generateList(8, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetAlgebraOfDifferentOrders() throws Exception {
+        ArraySet.union(generateArraySet(1, 2), (ArraySet<Integer>) generateArraySet(1, 2).descendingSet());
+    }
+
+    @Test
+    public void testSpliterator() throws Exception {
+        ArraySet<Integer> set = generateArraySet(5, 3, 9, 1, 7, 3, 8);
+        Spliterator<Integer> spliterator = set.spliterator();
+        int expected = Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED | Spliterator.SORTED
+                | Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+        assertEquals(expected, spliterator.characteristics());
+        assertNull(spliterator.getComparator());
+        assertEquals(6, spliterator.estimateSize());
+
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        assertEquals(3, prefix.estimateSize());
+        assertEquals(3, spliterator.estimateSize());
+        List<Integer> elements = new ArrayList<>();
+        prefix.forEachRemaining(elements::add);
+        spliterator.forEachRemaining(elements::add);
+        assertEquals(generateList(1, 3, 5, 7, 8, 9), elements);
+
+        NavigableSet<Integer> descending = set.descendingSet().headSet(3, false);
+        Spliterator<Integer> descendingSpliterator = descending.spliterator();
+        assertEquals(4, descendingSpliterator.estimateSize());
+        assertEquals(-1, Integer.signum(descendingSpliterator.getComparator().compare(9, 1)));
+
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            list.add(i);
+        }
+        ArraySet<Integer> large = new ArraySet<>(list, NATURAL_ORDER);
+        assertEquals(NATURAL_ORDER, large.spliterator().getComparator());
+        assertEquals(4999950000L, large.parallelStream().mapToLong(Integer::longValue).sum());
+        assertEquals(list.subList(100, 200), large.tailSet(100).parallelStream().limit(100).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testRankAndSelect() throws Exception {
+        ArraySet<Integer> set = generateArraySet(1, 3, 5, 7, 9);
+        assertEquals(0, set.rank(0));
+        assertEquals(0, set.rank(1));
+        assertEquals(1, set.rank(2));
+        assertEquals(2, set.rank(5));
+        assertEquals(5, set.rank(100));
+        for (int i = 0; i < set.size(); i++) {
+            assertEquals(2 * i + 1, (int) set.select(i));
+            assertEquals(i, set.indexOf(2 * i + 1));
+            assertEquals(-1, set.indexOf(2 * i));
+        }
+        assertEquals(-1, set.indexOf(100));
+
+        assertEquals(3, set.countInRange(3, true, 7, true));
+        assertEquals(1, set.countInRange(3, false, 7, false));
+        assertEquals(2, set.countInRange(2, true, 6, false));
+        assertEquals(5, set.countInRange(-10, false, 10, false));
+        assertEquals(0, set.countInRange(7, true, 3, true));
+        assertEquals(0, set.countInRange(5, false, 5, true));
+
+        ArraySet<Integer> descending = (ArraySet<Integer>) set.descendingSet();
+        assertEquals(1, descending.rank(8));
+        assertEquals(9, (int) descending.select(0));
+        assertEquals(3, descending.indexOf(3));
+        assertEquals(3, descending.countInRange(7, true, 3, true));
+        assertEquals(descending.subSet(8, false, 2, true).size(), descending.countInRange(8, false, 2, true));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSelectOutOfRange() throws Exception {
+        generateArraySet(1, 2, 3).select(3);
+    }
+
+    @Test
+    public void testDeeplyNestedViews() throws Exception {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(i);
+        }
+        NavigableSet<Integer> set = new ArraySet<>(list);
+        for (int i = 0; i < 100000; i++) {
+            set = set.descendingSet();
+        }
+        assertEquals(0, (int) set.first());
+        for (int i = 0; i < 400; i++) {
+            set = set.descendingSet().headSet(i, false).descendingSet();
+        }
+        assertEquals(600, set.size());
+        assertEquals(400, (int) set.first());
+        assertEquals(999, (int) set.last());
+        assertEquals(500, (int) ((ArraySet<Integer>) set).select(100));
+    }
+
+    private static void assertBatchProbes(ArraySet<Integer> set, List<Integer> queries) {
+        BitSet contains = set.containsEach(queries);
+        List<Integer> floors = set.floorAll(queries);
+        List<Integer> ceilings = set.ceilingAll(queries);
+        for (int i = 0; i < queries.size(); i++) {
+            Integer query = queries.get(i);
+            assertEquals(set.contains(query), contains.get(i));
+            assertEquals(set.floor(query), floors.get(i));
+            assertEquals(set.ceiling(query), ceilings.get(i));
+        }
+    }
+
+    @Test
+    public void testBatchProbes() throws Exception {
+        Random random = new Random(3239);
+        ArraySet<Integer> set = new ArraySet<>(randomList(random, 5000, 20000));
+        List<Integer> queries = randomList(random, 3000, 21000);
+        assertBatchProbes(set, queries);
+        Collections.sort(queries);
+        assertBatchProbes(set, queries);
+        assertBatchProbes((ArraySet<Integer>) set.subSet(5000, true, 15000, false), queries);
+        Collections.reverse(queries);
+        assertBatchProbes(set, queries);
+        assertBatchProbes((ArraySet<Integer>) set.descendingSet(), queries);
+        assertBatchProbes((ArraySet<Integer>) set.descendingSet().headSet(10000, true), queries);
+        assertBatchProbes(new ArraySet<>(), queries);
+        assertBatchProbes(set, Collections.emptyList());
+    }
+
+    @Test
+    public void testLargeBatchProbes() throws Exception {
+        Random random = new Random(3239);
+        ArraySet<Integer> set = new ArraySet<>(randomList(random, 100000, 1000000));
+        List<Integer> queries = randomList(random, 100000, 1000000);
+        Collections.sort(queries);
+        assertBatchProbes(set, new LinkedList<>(queries));
+        assertBatchProbes((ArraySet<Integer>) set.descendingSet(), queries);
+    }
+
     @Test
     public void testB() throws Exception {
         Integer a = null;
@@ -0,0 +1,131 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds positions of many keys in a sorted range of an array at once. Every key is
+ * searched by galloping (exponential) search from the position of the previous one,
+ * so for sorted (in either direction) queries the whole batch takes O(m log(n / m))
+ * comparisons instead of O(m log n), and unsorted queries cost no more than usual
+ * binary search. Large batches are split into consecutive parts, which are
+ * processed in {@link ForkJoinPool}.
+ *
+ * @author Daniyar Itegulov
+ */
+class BatchSearcher<T> {
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    private static final int PARTS_PER_THREAD = 4;
+
+    private final T[] elements;
+    private final int from;
+    private final int to;
+    private final Comparator<? super T> comparator;
+
+    @SuppressWarnings("unchecked")
+    BatchSearcher(Object[] elements, int from, int to, Comparator<? super T> comparator) {
+        this.elements = (T[]) elements;
+        this.from = from;
+        this.to = to;
+        this.comparator = comparator;
+    }
+
+    /**
+     * @return for every query, index of the first element in the range, which is not less than it
+     */
+    int[] lowerBounds(Object[] queries) {
+        int[] result = new int[queries.length];
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (queries.length < PARALLEL_THRESHOLD || parallelism < 2) {
+            lowerBounds(queries, result, 0, queries.length);
+            return result;
+        }
+        int count = parallelism * PARTS_PER_THREAD;
+        List<RecursiveAction> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int begin = (int) ((long) queries.length * i / count);
+            int end = (int) ((long) queries.length * (i + 1) / count);
+            parts.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    lowerBounds(queries, result, begin, end);
+                }
+            });
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(parts);
+            }
+        });
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void lowerBounds(Object[] queries, int[] result, int begin, int end) {
+        T previous = null;
+        int index = from;
+        for (int i = begin; i < end; i++) {
+            T query = (T) queries[i];
+            if (i == begin) {
+                index = lowerBound(from, to, query);
+            } else {
+                int cmp = comparator.compare(query, previous);
+                if (cmp > 0) {
+                    index = gallopRight(index, query);
+                } else if (cmp < 0) {
+                    index = gallopLeft(index, query);
+                }
+            }
+            result[i] = index;
+            previous = query;
+        }
+    }
+
+    /**
+     * @return index of the first element in {@code [start, to)}, which is not less than {@code key},
+     * checking elements at distances 1, 2, 4, ... from {@code start} before binary search
+     */
+    private int gallopRight(int start, T key) {
+        int step = 1;
+        int lo = start;
+        int hi = start;
+        while (hi < to && comparator.compare(elements[hi], key) < 0) {
+            lo = hi + 1;
+            hi = start + step;
+            step *= 2;
+        }
+        return lowerBound(lo, Math.min(hi, to), key);
+    }
+
+    /**
+     * @return index of the first element in {@code [from, start]}, which is not less than {@code key},
+     * checking elements at distances 1, 2, 4, ... before {@code start} before binary search
+     */
+    private int gallopLeft(int start, T key) {
+        int step = 1;
+        int hi = start;
+        int lo = start - 1;
+        while (lo >= from && comparator.compare(elements[lo], key) >= 0) {
+            hi = lo;
+            lo = start - 1 - step;
+            step *= 2;
+        }
+        return lowerBound(Math.max(lo + 1, from), hi, key);
+    }
+
+    private int lowerBound(int from, int to, T key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (comparator.compare(elements[mid], key) < 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+}
@@ -0,0 +1,873 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable compressed {@link java.util.NavigableSet} of {@code int} values in the spirit
+ * of Roaring bitmaps. Values are split into chunks by their high 16 bits, and every chunk
+ * keeps its low 16 bits in the smallest of three containers:
+ * <ul>
+ * <li>sorted {@code char[]} for sparse chunks (2 bytes per element, at most 4096 elements);</li>
+ * <li>bitmap of {@code 2^16} bits for dense chunks (8 KB regardless of cardinality);</li>
+ * <li>runs of consecutive values for chunks consisting of long runs (6 bytes per run).</li>
+ * </ul>
+ * Lookups find the chunk by binary search over their keys and then search inside its
+ * container. {@link #union} and {@link #intersection} work chunk by chunk, so they
+ * don't decompress whole sets.
+ * <p>
+ * Every view ({@link #headSet}, {@link #tailSet}, {@link #subSet}, {@link #descendingSet})
+ * shares chunks with the original set and keeps only bounds of the range, so it is created
+ * in O(1); {@link #size} of a view is computed in O(log n) from per-chunk prefix counts and
+ * counts, kept inside bitmap and run containers. Sets can contain all {@code 2^32} values,
+ * so, as {@link java.util.Collection#size} requires, size of larger ones is clamped to
+ * {@code Integer.MAX_VALUE}.
+ *
+ * @author Daniyar Itegulov
+ */
+public class CompressedIntSet extends AbstractSet<Integer> implements NavigableSet<Integer> {
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int MAX_ARRAY_SIZE = 4096;
+    private static final int BITMAP_WORDS = CHUNK_SIZE / 64;
+    private static final long NONE = Long.MAX_VALUE;
+
+    private final char[] keys;
+    private final Container[] containers;
+    private final long[] prefix;
+    private final int min;
+    private final int max;
+    private final boolean descending;
+
+    public CompressedIntSet() {
+        this(new int[0]);
+    }
+
+    public CompressedIntSet(int... values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        List<Character> keys = new ArrayList<>();
+        List<Container> containers = new ArrayList<>();
+        char[] lows = new char[Math.min(sorted.length, CHUNK_SIZE)];
+        int i = 0;
+        while (i < sorted.length) {
+            int high = high(sorted[i]);
+            int size = 0;
+            for (; i < sorted.length && high(sorted[i]) == high; i++) {
+                char low = (char) low(sorted[i]);
+                if (size == 0 || lows[size - 1] != low) {
+                    lows[size++] = low;
+                }
+            }
+            keys.add((char) high);
+            containers.add(Container.ofSorted(lows, size));
+        }
+        this.keys = new char[keys.size()];
+        for (int j = 0; j < this.keys.length; j++) {
+            this.keys[j] = keys.get(j);
+        }
+        this.containers = containers.toArray(new Container[containers.size()]);
+        this.prefix = prefixCounts(this.containers);
+        this.min = Integer.MIN_VALUE;
+        this.max = Integer.MAX_VALUE;
+        this.descending = false;
+    }
+
+    public CompressedIntSet(Collection<? extends Integer> collection) {
+        this(collection.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private CompressedIntSet(char[] keys, Container[] containers, long[] prefix, int min, int max, boolean descending) {
+        this.keys = keys;
+        this.containers = containers;
+        this.prefix = prefix;
+        this.min = min;
+        this.max = max;
+        this.descending = descending;
+    }
+
+    private CompressedIntSet(char[] keys, Container[] containers) {
+        this(keys, containers, prefixCounts(containers), Integer.MIN_VALUE, Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Creates set of all values in range {@code [from, to)} in O(number of chunks).
+     *
+     * @param from the first value of the range
+     * @param to value after the last one in the range
+     * @return new set
+     */
+    public static CompressedIntSet ofRange(int from, int to) {
+        if (from >= to) {
+            return new CompressedIntSet();
+        }
+        int last = to - 1;
+        int fromHigh = high(from);
+        int lastHigh = high(last);
+        char[] keys = new char[lastHigh - fromHigh + 1];
+        Container[] containers = new Container[keys.length];
+        for (int high = fromHigh; high <= lastHigh; high++) {
+            int begin = high == fromHigh ? low(from) : 0;
+            int end = high == lastHigh ? low(last) : CHUNK_SIZE - 1;
+            keys[high - fromHigh] = (char) high;
+            containers[high - fromHigh] = new RunContainer(new char[]{(char) begin}, new char[]{(char) (end - begin)},
+                    end - begin + 1);
+        }
+        return new CompressedIntSet(keys, containers);
+    }
+
+    private static long[] prefixCounts(Container[] containers) {
+        long[] prefix = new long[containers.length + 1];
+        for (int i = 0; i < containers.length; i++) {
+            prefix[i + 1] = prefix[i] + containers[i].cardinality();
+        }
+        return prefix;
+    }
+
+    /**
+     * Values are shifted by {@code 2^31}, so that unsigned order of shifted values is the same
+     * as signed order of original ones.
+     */
+    private static int high(int value) {
+        return (value ^ Integer.MIN_VALUE) >>> 16;
+    }
+
+    private static int low(int value) {
+        return value & 0xFFFF;
+    }
+
+    private static int value(int high, int low) {
+        return ((high << 16) | low) ^ Integer.MIN_VALUE;
+    }
+
+    /**
+     * Set of low 16 bits of values in one chunk.
+     */
+    abstract static class Container {
+        abstract int cardinality();
+
+        abstract boolean contains(int low);
+
+        /**
+         * @return the greatest element less than or equal to {@code low}, or {@code -1}
+         */
+        abstract int floor(int low);
+
+        /**
+         * @return the least element greater than or equal to {@code low}, or {@code -1}
+         */
+        abstract int ceiling(int low);
+
+        /**
+         * @return number of elements less than or equal to {@code low}
+         */
+        abstract int rank(int low);
+
+        abstract long[] toBitmap();
+
+        int first() {
+            return ceiling(0);
+        }
+
+        int last() {
+            return floor(CHUNK_SIZE - 1);
+        }
+
+        /**
+         * Creates the smallest container for given sorted distinct elements.
+         */
+        static Container ofSorted(char[] lows, int size) {
+            int runs = size == 0 ? 0 : 1;
+            for (int i = 1; i < size; i++) {
+                if (lows[i] != lows[i - 1] + 1) {
+                    runs++;
+                }
+            }
+            if (6 * runs < Math.min(2 * size, 8 * BITMAP_WORDS)) {
+                char[] starts = new char[runs];
+                char[] lengths = new char[runs];
+                int run = -1;
+                for (int i = 0; i < size; i++) {
+                    if (i == 0 || lows[i] != lows[i - 1] + 1) {
+                        starts[++run] = lows[i];
+                    } else {
+                        lengths[run]++;
+                    }
+                }
+                return new RunContainer(starts, lengths, size);
+            }
+            if (size <= MAX_ARRAY_SIZE) {
+                return new ArrayContainer(Arrays.copyOf(lows, size));
+            }
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < size; i++) {
+                words[lows[i] >>> 6] |= 1L << lows[i];
+            }
+            return new BitmapContainer(words, size);
+        }
+
+        /**
+         * Creates the smallest container for given bitmap, or {@code null} if it's empty.
+         */
+        static Container ofBitmap(long[] words) {
+            int cardinality = 0;
+            int runs = 0;
+            long previous = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+                runs += Long.bitCount(word & ~((word << 1) | (previous >>> 63)));
+                previous = word;
+            }
+            if (cardinality == 0) {
+                return null;
+            }
+            if (6 * runs >= 8 * BITMAP_WORDS && cardinality > MAX_ARRAY_SIZE) {
+                return new BitmapContainer(words, cardinality);
+            }
+            char[] lows = new char[cardinality];
+            int size = 0;
+            for (int w = 0; w < words.length; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    lows[size++] = (char) (w * 64 + Long.numberOfTrailingZeros(word));
+                }
+            }
+            return ofSorted(lows, size);
+        }
+
+        /**
+         * @return container of elements of given one in range {@code [from, to]}, or {@code null}
+         */
+        static Container clip(Container container, int from, int to) {
+            long[] words = container.toBitmap();
+            Arrays.fill(words, 0, from >>> 6, 0);
+            words[from >>> 6] &= -1L << from;
+            words[to >>> 6] &= -1L >>> (63 - (to & 63));
+            Arrays.fill(words, (to >>> 6) + 1, words.length, 0);
+            return ofBitmap(words);
+        }
+
+        static Container union(Container first, Container second) {
+            if (first instanceof ArrayContainer && second instanceof ArrayContainer
+                    && first.cardinality() + second.cardinality() <= MAX_ARRAY_SIZE) {
+                char[] a = ((ArrayContainer) first).values;
+                char[] b = ((ArrayContainer) second).values;
+                char[] result = new char[a.length + b.length];
+                int i = 0;
+                int j = 0;
+                int size = 0;
+                while (i < a.length || j < b.length) {
+                    if (j == b.length || i < a.length && a[i] < b[j]) {
+                        result[size++] = a[i++];
+                    } else if (i == a.length || b[j] < a[i]) {
+                        result[size++] = b[j++];
+                    } else {
+                        result[size++] = a[i++];
+                        j++;
+                    }
+                }
+                return ofSorted(result, size);
+            }
+            long[] words = first.toBitmap();
+            long[] other = second.toBitmap();
+            for (int i = 0; i < words.length; i++) {
+                words[i] |= other[i];
+            }
+            return ofBitmap(words);
+        }
+
+        static Container intersection(Container first, Container second) {
+            if (second instanceof ArrayContainer) {
+                Container tmp = first;
+                first = second;
+                second = tmp;
+            }
+            if (first instanceof ArrayContainer) {
+                char[] values = ((ArrayContainer) first).values;
+                char[] result = new char[values.length];
+                int size = 0;
+                for (char value : values) {
+                    if (second.contains(value)) {
+                        result[size++] = value;
+                    }
+                }
+                return size == 0 ? null : ofSorted(result, size);
+            }
+            long[] words = first.toBitmap();
+            long[] other = second.toBitmap();
+            for (int i = 0; i < words.length; i++) {
+                words[i] &= other[i];
+            }
+            return ofBitmap(words);
+        }
+    }
+
+    static class ArrayContainer extends Container {
+        private final char[] values;
+
+        private ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return Arrays.binarySearch(values, (char) low) >= 0;
+        }
+
+        @Override
+        int floor(int low) {
+            int index = Arrays.binarySearch(values, (char) low);
+            if (index >= 0) {
+                return low;
+            }
+            index = -index - 2;
+            return index >= 0 ? values[index] : -1;
+        }
+
+        @Override
+        int ceiling(int low) {
+            int index = Arrays.binarySearch(values, (char) low);
+            if (index >= 0) {
+                return low;
+            }
+            index = -index - 1;
+            return index < values.length ? values[index] : -1;
+        }
+
+        @Override
+        int rank(int low) {
+            int index = Arrays.binarySearch(values, (char) low);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+
+        @Override
+        long[] toBitmap() {
+            long[] words = new long[BITMAP_WORDS];
+            for (char value : values) {
+                words[value >>> 6] |= 1L << value;
+            }
+            return words;
+        }
+    }
+
+    static class BitmapContainer extends Container {
+        private static final int BLOCK_WORDS = 8;
+
+        private final long[] words;
+        private final int cardinality;
+        /**
+         * Number of elements before every block of {@link #BLOCK_WORDS} words.
+         */
+        private final int[] blockRanks;
+
+        private BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+            this.blockRanks = new int[BITMAP_WORDS / BLOCK_WORDS];
+            for (int block = 1; block < blockRanks.length; block++) {
+                int rank = blockRanks[block - 1];
+                for (int i = (block - 1) * BLOCK_WORDS; i < block * BLOCK_WORDS; i++) {
+                    rank += Long.bitCount(words[i]);
+                }
+                blockRanks[block] = rank;
+            }
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int floor(int low) {
+            int index = low >>> 6;
+            long word = words[index] & (-1L >>> (63 - (low & 63)));
+            while (word == 0) {
+                if (--index < 0) {
+                    return -1;
+                }
+                word = words[index];
+            }
+            return index * 64 + 63 - Long.numberOfLeadingZeros(word);
+        }
+
+        @Override
+        int ceiling(int low) {
+            int index = low >>> 6;
+            long word = words[index] & (-1L << low);
+            while (word == 0) {
+                if (++index == words.length) {
+                    return -1;
+                }
+                word = words[index];
+            }
+            return index * 64 + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        int rank(int low) {
+            int index = low >>> 6;
+            int rank = blockRanks[index / BLOCK_WORDS] + Long.bitCount(words[index] & (-1L >>> (63 - (low & 63))));
+            for (int i = index - index % BLOCK_WORDS; i < index; i++) {
+                rank += Long.bitCount(words[i]);
+            }
+            return rank;
+        }
+
+        @Override
+        long[] toBitmap() {
+            return words.clone();
+        }
+    }
+
+    static class RunContainer extends Container {
+        private final char[] starts;
+        /**
+         * Lengths of runs minus one, so that a run of all {@code 2^16} values fits in a {@code char}.
+         */
+        private final char[] lengths;
+        private final int cardinality;
+        /**
+         * Number of elements before every run, it's less than {@code 2^16}, as every run isn't empty.
+         */
+        private final char[] runRanks;
+
+        private RunContainer(char[] starts, char[] lengths, int cardinality) {
+            this.starts = starts;
+            this.lengths = lengths;
+            this.cardinality = cardinality;
+            this.runRanks = new char[starts.length];
+            for (int run = 1; run < starts.length; run++) {
+                runRanks[run] = (char) (runRanks[run - 1] + lengths[run - 1] + 1);
+            }
+        }
+
+        /**
+         * @return index of the last run, which starts at or before {@code low}, or {@code -1}
+         */
+        private int run(int low) {
+            int index = Arrays.binarySearch(starts, (char) low);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        private int end(int run) {
+            return starts[run] + lengths[run];
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(int low) {
+            int run = run(low);
+            return run >= 0 && low <= end(run);
+        }
+
+        @Override
+        int floor(int low) {
+            int run = run(low);
+            return run >= 0 ? Math.min(low, end(run)) : -1;
+        }
+
+        @Override
+        int ceiling(int low) {
+            int run = run(low);
+            if (run >= 0 && low <= end(run)) {
+                return low;
+            }
+            return run + 1 < starts.length ? starts[run + 1] : -1;
+        }
+
+        @Override
+        int rank(int low) {
+            int run = run(low);
+            if (run < 0) {
+                return 0;
+            }
+            return runRanks[run] + Math.min(low, end(run)) - starts[run] + 1;
+        }
+
+        @Override
+        long[] toBitmap() {
+            long[] words = new long[BITMAP_WORDS];
+            for (int run = 0; run < starts.length; run++) {
+                for (int i = starts[run]; i <= end(run); i++) {
+                    words[i >>> 6] |= 1L << i;
+                }
+            }
+            return words;
+        }
+    }
+
+    /**
+     * @return container of the chunk, which contains given value, or {@code null}
+     */
+    Container container(int value) {
+        int index = Arrays.binarySearch(keys, (char) high(value));
+        return index >= 0 ? containers[index] : null;
+    }
+
+    private int search(int high) {
+        return Arrays.binarySearch(keys, (char) high);
+    }
+
+    /**
+     * @return the least element of the whole set, which is greater than or equal to {@code value}, or {@link #NONE}
+     */
+    private long rawCeiling(int value) {
+        int high = high(value);
+        int index = search(high);
+        if (index >= 0) {
+            int low = containers[index].ceiling(low(value));
+            if (low >= 0) {
+                return value(high, low);
+            }
+            index++;
+        } else {
+            index = -index - 1;
+        }
+        return index < keys.length ? value(keys[index], containers[index].first()) : NONE;
+    }
+
+    /**
+     * @return the greatest element of the whole set, which is less than or equal to {@code value}, or {@link #NONE}
+     */
+    private long rawFloor(int value) {
+        int high = high(value);
+        int index = search(high);
+        if (index >= 0) {
+            int low = containers[index].floor(low(value));
+            if (low >= 0) {
+                return value(high, low);
+            }
+            index--;
+        } else {
+            index = -index - 2;
+        }
+        return index >= 0 ? value(keys[index], containers[index].last()) : NONE;
+    }
+
+    /**
+     * @return number of elements of the whole set, which are less than or equal to {@code value}
+     */
+    private long rawRank(int value) {
+        int index = search(high(value));
+        return index >= 0 ? prefix[index] + containers[index].rank(low(value)) : prefix[-index - 1];
+    }
+
+    private long ascendingCeiling(long value) {
+        if (value > max || min > max) {
+            return NONE;
+        }
+        long result = rawCeiling((int) Math.max(value, min));
+        return result <= max ? result : NONE;
+    }
+
+    private long ascendingFloor(long value) {
+        if (value < min || min > max) {
+            return NONE;
+        }
+        long result = rawFloor((int) Math.min(value, max));
+        return result != NONE && result >= min ? result : NONE;
+    }
+
+    private static Integer boxed(long value) {
+        return value == NONE ? null : (int) value;
+    }
+
+    @Override
+    public Integer lower(Integer value) {
+        return boxed(descending ? ascendingCeiling((long) value + 1) : ascendingFloor((long) value - 1));
+    }
+
+    @Override
+    public Integer floor(Integer value) {
+        return boxed(descending ? ascendingCeiling(value) : ascendingFloor(value));
+    }
+
+    @Override
+    public Integer ceiling(Integer value) {
+        return boxed(descending ? ascendingFloor(value) : ascendingCeiling(value));
+    }
+
+    @Override
+    public Integer higher(Integer value) {
+        return boxed(descending ? ascendingFloor((long) value - 1) : ascendingCeiling((long) value + 1));
+    }
+
+    /**
+     * Returns {@code true} if this set contains the specified value.
+     *
+     * @param value value whose presence in this set is to be tested
+     * @return {@code true} if this set contains {@code value}
+     */
+    public boolean containsInt(int value) {
+        if (value < min || value > max) {
+            return false;
+        }
+        Container container = container(value);
+        return container != null && container.contains(low(value));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && containsInt((Integer) o);
+    }
+
+    @Override
+    public Integer pollFirst() {
+        throw new UnsupportedOperationException("pollFirst");
+    }
+
+    @Override
+    public Integer pollLast() {
+        throw new UnsupportedOperationException("pollLast");
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return descending ? descendingIntIterator() : ascendingIntIterator();
+    }
+
+    @Override
+    public Iterator<Integer> descendingIterator() {
+        return descending ? ascendingIntIterator() : descendingIntIterator();
+    }
+
+    private PrimitiveIterator.OfInt ascendingIntIterator() {
+        return new PrimitiveIterator.OfInt() {
+            private long next = ascendingCeiling(min);
+            private int index = next == NONE ? keys.length : search(high((int) next));
+
+            @Override
+            public boolean hasNext() {
+                return next != NONE;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next == NONE) {
+                    throw new NoSuchElementException();
+                }
+                int result = (int) next;
+                int low = low(result);
+                int nextLow = low + 1 < CHUNK_SIZE ? containers[index].ceiling(low + 1) : -1;
+                if (nextLow >= 0) {
+                    next = value(keys[index], nextLow);
+                } else if (++index < keys.length) {
+                    next = value(keys[index], containers[index].first());
+                } else {
+                    next = NONE;
+                }
+                if (next != NONE && next > max) {
+                    next = NONE;
+                }
+                return result;
+            }
+        };
+    }
+
+    private PrimitiveIterator.OfInt descendingIntIterator() {
+        return new PrimitiveIterator.OfInt() {
+            private long next = ascendingFloor(max);
+            private int index = next == NONE ? -1 : search(high((int) next));
+
+            @Override
+            public boolean hasNext() {
+                return next != NONE;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next == NONE) {
+                    throw new NoSuchElementException();
+                }
+                int result = (int) next;
+                int low = low(result);
+                int nextLow = low > 0 ? containers[index].floor(low - 1) : -1;
+                if (nextLow >= 0) {
+                    next = value(keys[index], nextLow);
+                } else if (--index >= 0) {
+                    next = value(keys[index], containers[index].last());
+                } else {
+                    next = NONE;
+                }
+                if (next != NONE && next < min) {
+                    next = NONE;
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * @return iterator over unboxed elements of this set in its order
+     */
+    public PrimitiveIterator.OfInt intIterator() {
+        return descending ? descendingIntIterator() : ascendingIntIterator();
+    }
+
+    private CompressedIntSet withBounds(long newMin, long newMax) {
+        if (newMin > newMax) {
+            return new CompressedIntSet(keys, containers, prefix, 1, 0, descending);
+        }
+        return new CompressedIntSet(keys, containers, prefix, (int) newMin, (int) newMax, descending);
+    }
+
+    @Override
+    public NavigableSet<Integer> descendingSet() {
+        return new CompressedIntSet(keys, containers, prefix, min, max, !descending);
+    }
+
+    @Override
+    public NavigableSet<Integer> subSet(Integer fromElement, boolean fromInclusive, Integer toElement, boolean toInclusive) {
+        if (descending ? fromElement < toElement : fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return ((CompressedIntSet) headSet(toElement, toInclusive)).tailSet(fromElement, fromInclusive);
+    }
+
+    @Override
+    public NavigableSet<Integer> headSet(Integer toElement, boolean inclusive) {
+        if (descending) {
+            return withBounds(Math.max(min, inclusive ? (long) toElement : (long) toElement + 1), max);
+        }
+        return withBounds(min, Math.min(max, inclusive ? (long) toElement : (long) toElement - 1));
+    }
+
+    @Override
+    public NavigableSet<Integer> tailSet(Integer fromElement, boolean inclusive) {
+        if (descending) {
+            return withBounds(min, Math.min(max, inclusive ? (long) fromElement : (long) fromElement - 1));
+        }
+        return withBounds(Math.max(min, inclusive ? (long) fromElement : (long) fromElement + 1), max);
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return descending ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public SortedSet<Integer> subSet(Integer fromElement, Integer toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<Integer> headSet(Integer toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<Integer> tailSet(Integer fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Integer first() {
+        Integer first = boxed(descending ? ascendingFloor(max) : ascendingCeiling(min));
+        if (first == null) {
+            throw new NoSuchElementException();
+        }
+        return first;
+    }
+
+    @Override
+    public Integer last() {
+        Integer last = boxed(descending ? ascendingCeiling(min) : ascendingFloor(max));
+        if (last == null) {
+            throw new NoSuchElementException();
+        }
+        return last;
+    }
+
+    @Override
+    public int size() {
+        if (min > max) {
+            return 0;
+        }
+        long size = rawRank(max) - (min == Integer.MIN_VALUE ? 0 : rawRank(min - 1));
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return ascendingCeiling(min) == NONE;
+    }
+
+    /**
+     * @return container of the chunk with given index, clipped to the bounds of this set, or {@code null}
+     */
+    private Container bounded(int index) {
+        if (min > max) {
+            return null;
+        }
+        int high = keys[index];
+        int from = high == high(min) ? low(min) : 0;
+        int to = high == high(max) ? low(max) : CHUNK_SIZE - 1;
+        if (high < high(min) || high > high(max)) {
+            return null;
+        }
+        if (from == 0 && to == CHUNK_SIZE - 1) {
+            return containers[index];
+        }
+        return Container.clip(containers[index], from, to);
+    }
+
+    /**
+     * Returns set of values, which are contained in at least one of given sets.
+     *
+     * @param first first set
+     * @param second second set
+     * @return union of sets in ascending order
+     */
+    public static CompressedIntSet union(CompressedIntSet first, CompressedIntSet second) {
+        return merge(first, second, true);
+    }
+
+    /**
+     * Returns set of values, which are contained in both given sets.
+     *
+     * @param first first set
+     * @param second second set
+     * @return intersection of sets in ascending order
+     */
+    public static CompressedIntSet intersection(CompressedIntSet first, CompressedIntSet second) {
+        return merge(first, second, false);
+    }
+
+    private static CompressedIntSet merge(CompressedIntSet first, CompressedIntSet second, boolean union) {
+        char[] keys = new char[first.keys.length + second.keys.length];
+        Container[] containers = new Container[keys.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.keys.length || j < second.keys.length) {
+            int cmp = i == first.keys.length ? 1 : j == second.keys.length ? -1
+                    : Character.compare(first.keys[i], second.keys[j]);
+            char key = cmp <= 0 ? first.keys[i] : second.keys[j];
+            Container a = cmp <= 0 ? first.bounded(i++) : null;
+            Container b = cmp >= 0 ? second.bounded(j++) : null;
+            Container result;
+            if (a == null || b == null) {
+                result = union ? (a == null ? b : a) : null;
+            } else {
+                result = union ? Container.union(a, b) : Container.intersection(a, b);
+            }
+            if (result != null) {
+                keys[size] = key;
+                containers[size++] = result;
+            }
+        }
+        return new CompressedIntSet(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size));
+    }
+}
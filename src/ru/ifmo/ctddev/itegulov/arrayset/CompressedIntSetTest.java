@@ -0,0 +1,203 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static ru.ifmo.ctddev.itegulov.arrayset.NavigationAssert.assertSameNavigation;
+
+public class CompressedIntSetTest {
+    private static final Random RANDOM = new Random(NavigationAssert.SEED);
+
+    /**
+     * Generates values, which form sparse, dense and run-like chunks.
+     */
+    private static int[] mixedValues() {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(RANDOM.nextInt());
+        }
+        for (int i = 0; i < 20000; i++) {
+            values.add((5 << 16) + RANDOM.nextInt(1 << 16));
+        }
+        for (int run = 0; run < 50; run++) {
+            int start = (-3 << 16) + RANDOM.nextInt(1 << 17);
+            for (int i = 0; i < 300; i++) {
+                values.add(start + i);
+            }
+        }
+        values.add(Integer.MIN_VALUE);
+        values.add(Integer.MAX_VALUE);
+        values.add(-1);
+        values.add(0);
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static List<Integer> probes(NavigableSet<Integer> set) {
+        List<Integer> probes = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            probes.add(RANDOM.nextInt());
+            probes.add((5 << 16) + RANDOM.nextInt(1 << 16));
+            probes.add((-3 << 16) + RANDOM.nextInt(1 << 18));
+        }
+        for (Integer value : set) {
+            if (RANDOM.nextInt(50) == 0) {
+                probes.add(value);
+                probes.add(value + 1);
+                probes.add(value - 1);
+            }
+        }
+        probes.addAll(Arrays.asList(Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1, 1, 5 << 16, (6 << 16) - 1));
+        return probes;
+    }
+
+    @Test
+    public void testNavigation() throws Exception {
+        int[] values = mixedValues();
+        TreeSet<Integer> treeSet = new TreeSet<>();
+        for (int value : values) {
+            treeSet.add(value);
+        }
+        CompressedIntSet set = new CompressedIntSet(values);
+        List<Integer> probes = probes(treeSet);
+        assertSameNavigation(treeSet, set, probes);
+        assertSameNavigation(treeSet.descendingSet(), set.descendingSet(), probes);
+        assertSameNavigation(treeSet.headSet(0, true), set.headSet(0, true), probes);
+        assertSameNavigation(treeSet.tailSet(-1, false), set.tailSet(-1, false), probes);
+        int from = (5 << 16) + 1000;
+        int to = (5 << 16) + 30000;
+        assertSameNavigation(treeSet.subSet(from, true, to, false), set.subSet(from, true, to, false), probes);
+        assertSameNavigation(treeSet.descendingSet().subSet(to, false, -100000, true),
+                set.descendingSet().subSet(to, false, -100000, true), probes);
+        assertSameNavigation(treeSet.headSet(Integer.MIN_VALUE, false), set.headSet(Integer.MIN_VALUE, false), probes);
+        assertSameNavigation(treeSet.tailSet(Integer.MAX_VALUE, true), set.tailSet(Integer.MAX_VALUE, true), probes);
+        assertEquals(treeSet, set);
+        assertEquals(treeSet.hashCode(), set.hashCode());
+    }
+
+    @Test
+    public void testContainers() throws Exception {
+        int[] values = new int[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        assertTrue(new CompressedIntSet(values).container(0) instanceof CompressedIntSet.RunContainer);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 6 * i;
+        }
+        assertTrue(new CompressedIntSet(values).container(0) instanceof CompressedIntSet.BitmapContainer);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 100 * i;
+        }
+        assertTrue(new CompressedIntSet(values).container(0) instanceof CompressedIntSet.ArrayContainer);
+    }
+
+    @Test
+    public void testOfRange() throws Exception {
+        CompressedIntSet set = CompressedIntSet.ofRange(-100000, 200000);
+        assertEquals(300000, set.size());
+        assertEquals(Integer.valueOf(-100000), set.first());
+        assertEquals(Integer.valueOf(199999), set.last());
+        assertEquals(Integer.valueOf(199999), set.floor(Integer.MAX_VALUE));
+        assertNull(set.higher(199999));
+        assertEquals(1000, set.subSet(0, 1000).size());
+        assertEquals(0, CompressedIntSet.ofRange(5, 5).size());
+        assertEquals(Arrays.asList(Integer.MAX_VALUE - 1),
+                new ArrayList<>(CompressedIntSet.ofRange(Integer.MAX_VALUE - 1, Integer.MAX_VALUE)));
+    }
+
+    @Test
+    public void testHugeSize() throws Exception {
+        CompressedIntSet set = CompressedIntSet.ofRange(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE, set.size());
+        assertEquals(Integer.MAX_VALUE, set.headSet(0).size());
+        assertEquals(Integer.MAX_VALUE, set.headSet(-1).size());
+        assertEquals(Integer.MAX_VALUE - 1, set.headSet(-2).size());
+        assertEquals(Integer.MAX_VALUE, set.tailSet(0).size());
+        assertEquals(Integer.MAX_VALUE - 1, set.tailSet(1).size());
+        assertEquals(Integer.MAX_VALUE, set.descendingSet().size());
+    }
+
+    @Test
+    public void testViewSizes() throws Exception {
+        TreeSet<Integer> treeSet = new TreeSet<>();
+        for (int i = 0; i < 50000; i++) {
+            treeSet.add(RANDOM.nextInt(1 << 17));
+            int start = (1 << 18) + RANDOM.nextInt(1 << 16);
+            treeSet.add(start);
+            treeSet.add(start + 1);
+        }
+        CompressedIntSet set = new CompressedIntSet(treeSet);
+        for (int i = 0; i < 1000; i++) {
+            int from = RANDOM.nextInt(1 << 19);
+            int to = from + RANDOM.nextInt(1 << 18);
+            assertEquals(treeSet.subSet(from, to).size(), set.subSet(from, to).size());
+        }
+    }
+
+    private static void assertSetAlgebra(int[] first, int[] second) {
+        TreeSet<Integer> a = new TreeSet<>();
+        for (int value : first) {
+            a.add(value);
+        }
+        TreeSet<Integer> b = new TreeSet<>();
+        for (int value : second) {
+            b.add(value);
+        }
+        TreeSet<Integer> union = new TreeSet<>(a);
+        union.addAll(b);
+        TreeSet<Integer> intersection = new TreeSet<>(a);
+        intersection.retainAll(b);
+        CompressedIntSet x = new CompressedIntSet(first);
+        CompressedIntSet y = new CompressedIntSet(second);
+        assertEquals(new ArrayList<>(union), new ArrayList<>(CompressedIntSet.union(x, y)));
+        assertEquals(new ArrayList<>(intersection), new ArrayList<>(CompressedIntSet.intersection(x, y)));
+        assertEquals(intersection.size(), CompressedIntSet.intersection(x, y).size());
+    }
+
+    @Test
+    public void testSetAlgebra() throws Exception {
+        assertSetAlgebra(mixedValues(), mixedValues());
+        int[] dense = new int[50000];
+        for (int i = 0; i < dense.length; i++) {
+            dense[i] = RANDOM.nextInt(1 << 17);
+        }
+        int[] sparse = new int[3000];
+        for (int i = 0; i < sparse.length; i++) {
+            sparse[i] = RANDOM.nextInt(1 << 17);
+        }
+        assertSetAlgebra(dense, sparse);
+        assertSetAlgebra(sparse, sparse.clone());
+        assertSetAlgebra(new int[0], dense);
+    }
+
+    @Test
+    public void testSetAlgebraOfViews() throws Exception {
+        CompressedIntSet first = CompressedIntSet.ofRange(0, 1 << 18);
+        CompressedIntSet second = new CompressedIntSet(mixedValues());
+        CompressedIntSet head = (CompressedIntSet) first.headSet(100000, true);
+        CompressedIntSet tail = (CompressedIntSet) second.tailSet(70000, false);
+        TreeSet<Integer> expected = new TreeSet<>(head);
+        expected.retainAll(tail);
+        assertEquals(expected, CompressedIntSet.intersection(head, tail));
+        expected = new TreeSet<>(head);
+        expected.addAll(tail);
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(CompressedIntSet.union(head, tail)));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        CompressedIntSet set = new CompressedIntSet();
+        assertEquals(0, set.size());
+        assertTrue(set.isEmpty());
+        assertNull(set.floor(1));
+        assertFalse(set.iterator().hasNext());
+        assertEquals(0, set.headSet(5).size());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testFirstOfEmptyView() throws Exception {
+        new CompressedIntSet(1, 2, 3).subSet(4, 10).first();
+    }
+}
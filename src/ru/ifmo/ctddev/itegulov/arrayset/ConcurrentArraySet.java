@@ -0,0 +1,481 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import java.util.*;
+
+/**
+ * Thread-safe {@link java.util.NavigableSet} for read-mostly workloads. Its contents are
+ * kept in an immutable {@link State}: a large {@link ArraySet} plus small sorted arrays of
+ * elements, which were added to it or removed from it since the last merge. Readers take
+ * current state from a volatile field and search it without any locking, so lookups cost
+ * about the same as in {@link ArraySet}. Writers are serialized; every write copies only
+ * the small delta, and once the delta grows beyond ~sqrt(n) elements it is merged into the
+ * base set in O(n), which gives O(sqrt(n)) amortized cost per write.
+ * <p>
+ * Iterators reflect the state at the moment they were created and never throw
+ * {@link ConcurrentModificationException}. Views ({@link #headSet}, {@link #tailSet},
+ * {@link #subSet}, {@link #descendingSet}) are immutable snapshots: they are built from the
+ * current state without locking and don't reflect later changes of the set. Building one
+ * is O(log n) if there are no pending changes and O(n) otherwise.
+ * Null elements are not permitted.
+ *
+ * @author Daniyar Itegulov
+ */
+public class ConcurrentArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+    private static final int MIN_DELTA = 32;
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Comparator<T> comparator;
+    private final boolean isNatural;
+    private volatile State<T> state;
+
+    public ConcurrentArraySet() {
+        this(Collections.emptyList());
+    }
+
+    public ConcurrentArraySet(Collection<? extends T> collection) {
+        this.comparator = ArraySet.naturalOrder();
+        this.isNatural = true;
+        this.state = new State<>(new ArraySet<>(collection), EMPTY, EMPTY);
+    }
+
+    public ConcurrentArraySet(Comparator<T> comparator) {
+        this(Collections.emptyList(), comparator);
+    }
+
+    public ConcurrentArraySet(Collection<? extends T> collection, Comparator<T> comparator) {
+        this.comparator = comparator;
+        this.isNatural = false;
+        this.state = new State<>(new ArraySet<>(collection, comparator), EMPTY, EMPTY);
+    }
+
+    /**
+     * Immutable contents of the set: elements of {@code base}, which are not in {@code removed},
+     * and elements of {@code added}. Both arrays are sorted, {@code added} is disjoint
+     * with {@code base} and {@code removed} is a subset of it.
+     */
+    private static class State<T> {
+        private final ArraySet<T> base;
+        private final Object[] added;
+        private final Object[] removed;
+
+        private State(ArraySet<T> base, Object[] added, Object[] removed) {
+            this.base = base;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        private int size() {
+            return base.size() + added.length - removed.length;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int search(Object[] array, Object key) {
+        return Arrays.binarySearch((T[]) array, (T) key, comparator);
+    }
+
+    private boolean contains(State<T> state, T key) {
+        return search(state.added, key) >= 0 || state.base.contains(key) && search(state.removed, key) < 0;
+    }
+
+    private static Object[] insert(Object[] array, int index, Object element) {
+        Object[] result = new Object[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = element;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static Object[] delete(Object[] array, int index) {
+        Object[] result = new Object[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, result.length - index);
+        return result;
+    }
+
+    private ArraySet<T> sortedSet(Object[] sorted) {
+        return ArraySet.view(sorted, 0, sorted.length, false, comparator, isNatural);
+    }
+
+    private static <T> State<T> merge(State<T> state, ArraySet<T> added, ArraySet<T> removed) {
+        ArraySet<T> base = ArraySet.difference(ArraySet.union(state.base, added), removed);
+        return new State<>(base, EMPTY, EMPTY);
+    }
+
+    private static boolean isSmallDelta(long delta, int baseSize) {
+        return delta <= MIN_DELTA || delta * delta <= baseSize;
+    }
+
+    /**
+     * Publishes new state, merging its delta into the base set if the delta became too large.
+     */
+    private void publish(State<T> next) {
+        if (!isSmallDelta(next.added.length + next.removed.length, next.base.size())) {
+            next = merge(next, sortedSet(next.added), sortedSet(next.removed));
+        }
+        state = next;
+    }
+
+    /**
+     * @return immutable set with the same elements as given state, which isn't changed
+     */
+    private ArraySet<T> contents(State<T> state) {
+        if (state.added.length == 0 && state.removed.length == 0) {
+            return state.base;
+        }
+        return merge(state, sortedSet(state.added), sortedSet(state.removed)).base;
+    }
+
+    /**
+     * Merges all pending changes and returns the contents of this set at this moment.
+     *
+     * @return immutable set with the same elements as this set
+     */
+    public synchronized ArraySet<T> snapshot() {
+        State<T> current = state;
+        ArraySet<T> contents = contents(current);
+        if (contents != current.base) {
+            state = new State<>(contents, EMPTY, EMPTY);
+        }
+        return contents;
+    }
+
+    @Override
+    public synchronized boolean add(T element) {
+        Objects.requireNonNull(element);
+        State<T> current = state;
+        int removedIndex = search(current.removed, element);
+        if (removedIndex >= 0) {
+            publish(new State<>(current.base, current.added, delete(current.removed, removedIndex)));
+            return true;
+        }
+        if (current.base.contains(element)) {
+            return false;
+        }
+        int addedIndex = search(current.added, element);
+        if (addedIndex >= 0) {
+            return false;
+        }
+        publish(new State<>(current.base, insert(current.added, -addedIndex - 1, element), current.removed));
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized boolean remove(Object o) {
+        Objects.requireNonNull(o);
+        T element = (T) o;
+        State<T> current = state;
+        int addedIndex = search(current.added, element);
+        if (addedIndex >= 0) {
+            publish(new State<>(current.base, delete(current.added, addedIndex), current.removed));
+            return true;
+        }
+        int removedIndex = search(current.removed, element);
+        if (removedIndex >= 0 || !current.base.contains(element)) {
+            return false;
+        }
+        publish(new State<>(current.base, current.added, insert(current.removed, -removedIndex - 1, element)));
+        return true;
+    }
+
+    /**
+     * Adds elements to the set. Few elements go to the delta in O(k log n) plus the size of
+     * the delta, like single {@link #add}s, many ones are merged with the base set in O(n).
+     */
+    @Override
+    public synchronized boolean addAll(Collection<? extends T> collection) {
+        State<T> current = state;
+        ArraySet<T> added = isNatural ? new ArraySet<>(collection) : new ArraySet<>(collection, comparator);
+        State<T> next;
+        if (isSmallDelta((long) current.added.length + current.removed.length + added.size(), current.base.size())) {
+            next = addToDelta(current, added);
+        } else {
+            next = merge(merge(current, sortedSet(current.added), sortedSet(current.removed)), added, sortedSet(EMPTY));
+        }
+        state = next;
+        return next.size() != current.size();
+    }
+
+    private State<T> addToDelta(State<T> state, ArraySet<T> elements) {
+        List<T> added = new ArrayList<>();
+        List<T> restored = new ArrayList<>();
+        for (T element : elements) {
+            if (search(state.removed, element) >= 0) {
+                restored.add(element);
+            } else if (!state.base.contains(element)) {
+                added.add(element);
+            }
+        }
+        return new State<>(state.base,
+                ArraySet.union(sortedSet(state.added), sortedSet(added.toArray())).toArray(),
+                ArraySet.difference(sortedSet(state.removed), sortedSet(restored.toArray())).toArray());
+    }
+
+    @Override
+    public synchronized void clear() {
+        state = new State<>(sortedSet(EMPTY), EMPTY, EMPTY);
+    }
+
+    @Override
+    public synchronized T pollFirst() {
+        T first = lowest(state);
+        if (first != null) {
+            remove(first);
+        }
+        return first;
+    }
+
+    @Override
+    public synchronized T pollLast() {
+        T last = highest(state);
+        if (last != null) {
+            remove(last);
+        }
+        return last;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T element(Object[] array, int index) {
+        return index >= 0 && index < array.length ? (T) array[index] : null;
+    }
+
+    private T min(T a, T b) {
+        return a == null ? b : b == null ? a : comparator.compare(a, b) <= 0 ? a : b;
+    }
+
+    private T max(T a, T b) {
+        return a == null ? b : b == null ? a : comparator.compare(a, b) >= 0 ? a : b;
+    }
+
+    private boolean isRemoved(State<T> state, T element) {
+        return element != null && search(state.removed, element) >= 0;
+    }
+
+    /**
+     * Finds the greatest element, which is less than (or equal to, unless {@code strict})
+     * {@code key}, skipping removed elements of the base set.
+     */
+    private T floor(State<T> state, T key, boolean strict) {
+        T fromBase = strict ? state.base.lower(key) : state.base.floor(key);
+        while (isRemoved(state, fromBase)) {
+            fromBase = state.base.lower(fromBase);
+        }
+        int index = search(state.added, key);
+        T fromAdded = element(state.added, index >= 0 ? (strict ? index - 1 : index) : -index - 2);
+        return max(fromBase, fromAdded);
+    }
+
+    /**
+     * Finds the least element, which is greater than (or equal to, unless {@code strict})
+     * {@code key}, skipping removed elements of the base set.
+     */
+    private T ceiling(State<T> state, T key, boolean strict) {
+        T fromBase = strict ? state.base.higher(key) : state.base.ceiling(key);
+        while (isRemoved(state, fromBase)) {
+            fromBase = state.base.higher(fromBase);
+        }
+        int index = search(state.added, key);
+        T fromAdded = element(state.added, index >= 0 ? (strict ? index + 1 : index) : -index - 1);
+        return min(fromBase, fromAdded);
+    }
+
+    private T lowest(State<T> state) {
+        T fromBase = state.base.isEmpty() ? null : state.base.first();
+        while (isRemoved(state, fromBase)) {
+            fromBase = state.base.higher(fromBase);
+        }
+        return min(fromBase, element(state.added, 0));
+    }
+
+    private T highest(State<T> state) {
+        T fromBase = state.base.isEmpty() ? null : state.base.last();
+        while (isRemoved(state, fromBase)) {
+            fromBase = state.base.lower(fromBase);
+        }
+        return max(fromBase, element(state.added, state.added.length - 1));
+    }
+
+    @Override
+    public T lower(T t) {
+        return floor(state, t, true);
+    }
+
+    @Override
+    public T floor(T t) {
+        return floor(state, t, false);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return ceiling(state, t, false);
+    }
+
+    @Override
+    public T higher(T t) {
+        return ceiling(state, t, true);
+    }
+
+    @Override
+    public T first() {
+        T first = lowest(state);
+        if (first == null) {
+            throw new NoSuchElementException();
+        }
+        return first;
+    }
+
+    @Override
+    public T last() {
+        T last = highest(state);
+        if (last == null) {
+            throw new NoSuchElementException();
+        }
+        return last;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        return contains(state, (T) o);
+    }
+
+    @Override
+    public int size() {
+        return state.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return state.size() == 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new SnapshotIterator(state, false);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return new SnapshotIterator(state, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returned set is an immutable snapshot of this set, it doesn't reflect later changes.
+     */
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return contents(state).descendingSet();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returned set is an immutable snapshot of this set, it doesn't reflect later changes.
+     */
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return contents(state).subSet(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returned set is an immutable snapshot of this set, it doesn't reflect later changes.
+     */
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return contents(state).headSet(toElement, inclusive);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returned set is an immutable snapshot of this set, it doesn't reflect later changes.
+     */
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return contents(state).tailSet(fromElement, inclusive);
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return isNatural ? null : comparator;
+    }
+
+    /**
+     * Merges elements of the base set, which are not removed, with added elements.
+     * Removal through this iterator removes element from the set itself.
+     */
+    private class SnapshotIterator implements Iterator<T> {
+        private final State<T> state;
+        private final boolean descending;
+        private final Iterator<T> base;
+        private T nextBase;
+        private int addedIndex;
+        private T lastReturned;
+
+        private SnapshotIterator(State<T> state, boolean descending) {
+            this.state = state;
+            this.descending = descending;
+            this.base = descending ? state.base.descendingIterator() : state.base.iterator();
+            this.addedIndex = descending ? state.added.length - 1 : 0;
+            advanceBase();
+        }
+
+        private void advanceBase() {
+            do {
+                nextBase = base.hasNext() ? base.next() : null;
+            } while (isRemoved(state, nextBase));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextBase != null || element(state.added, addedIndex) != null;
+        }
+
+        @Override
+        public T next() {
+            T nextAdded = element(state.added, addedIndex);
+            if (nextBase == null && nextAdded == null) {
+                throw new NoSuchElementException();
+            }
+            boolean takeAdded = nextBase == null || nextAdded != null
+                    && (comparator.compare(nextAdded, nextBase) < 0) != descending;
+            if (takeAdded) {
+                lastReturned = nextAdded;
+                addedIndex += descending ? -1 : 1;
+            } else {
+                lastReturned = nextBase;
+                advanceBase();
+            }
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentArraySet.this.remove(lastReturned);
+            lastReturned = null;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentArraySetTest {
+    private static final Random RANDOM = new Random(3239);
+
+    private static void assertSameSet(TreeSet<Integer> expected, ConcurrentArraySet<Integer> actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        List<Integer> descending = new ArrayList<>();
+        actual.descendingIterator().forEachRemaining(descending::add);
+        assertEquals(new ArrayList<>(expected.descendingSet()), descending);
+        assertEquals(expected, actual.snapshot());
+    }
+
+    private static void randomOperations(TreeSet<Integer> expected, ConcurrentArraySet<Integer> actual,
+                                         int operations, int bound) {
+        for (int i = 0; i < operations; i++) {
+            int value = RANDOM.nextInt(bound);
+            switch (RANDOM.nextInt(9)) {
+                case 0:
+                case 1:
+                    assertEquals(expected.add(value), actual.add(value));
+                    break;
+                case 2:
+                case 3:
+                    assertEquals(expected.remove(value), actual.remove(value));
+                    break;
+                case 4:
+                    assertEquals(expected.pollFirst(), actual.pollFirst());
+                    break;
+                case 5:
+                    assertEquals(expected.pollLast(), actual.pollLast());
+                    break;
+                case 6:
+                    List<Integer> values = new ArrayList<>();
+                    for (int j = RANDOM.nextInt(8); j >= 0; j--) {
+                        values.add(RANDOM.nextInt(bound));
+                    }
+                    assertEquals(expected.addAll(values), actual.addAll(values));
+                    break;
+                default:
+                    assertEquals(expected.contains(value), actual.contains(value));
+                    assertEquals(expected.lower(value), actual.lower(value));
+                    assertEquals(expected.floor(value), actual.floor(value));
+                    assertEquals(expected.ceiling(value), actual.ceiling(value));
+                    assertEquals(expected.higher(value), actual.higher(value));
+                    assertEquals(expected.size(), actual.size());
+            }
+        }
+    }
+
+    @Test
+    public void testRandomOperations() throws Exception {
+        List<Integer> initial = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            initial.add(RANDOM.nextInt(5000));
+        }
+        TreeSet<Integer> expected = new TreeSet<>(initial);
+        ConcurrentArraySet<Integer> actual = new ConcurrentArraySet<>(initial);
+        for (int round = 0; round < 20; round++) {
+            randomOperations(expected, actual, 500, 5000);
+            assertSameSet(expected, actual);
+        }
+    }
+
+    @Test
+    public void testComparator() throws Exception {
+        Comparator<Integer> comparator = Comparator.reverseOrder();
+        TreeSet<Integer> expected = new TreeSet<>(comparator);
+        ConcurrentArraySet<Integer> actual = new ConcurrentArraySet<>(comparator);
+        randomOperations(expected, actual, 3000, 300);
+        assertSameSet(expected, actual);
+        assertEquals(comparator, actual.comparator());
+        assertEquals(new ArrayList<>(expected.headSet(100, true)), new ArrayList<>(actual.headSet(100, true)));
+        assertEquals(new ArrayList<>(expected.descendingSet()), new ArrayList<>(actual.descendingSet()));
+    }
+
+    @Test
+    public void testBulkOperations() throws Exception {
+        ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(Arrays.asList(5, 1, 3));
+        assertTrue(set.addAll(Arrays.asList(4, 2, 3)));
+        assertFalse(set.addAll(Arrays.asList(1, 2)));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), new ArrayList<>(set));
+        assertTrue(set.removeIf(i -> i % 2 == 0));
+        assertEquals(Arrays.asList(1, 3, 5), new ArrayList<>(set));
+        assertTrue(set.retainAll(Collections.singleton(3)));
+        assertEquals(Integer.valueOf(3), set.first());
+        assertEquals(Integer.valueOf(3), set.last());
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertNull(set.pollFirst());
+    }
+
+    @Test
+    public void testSnapshotIterator() throws Exception {
+        ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(Arrays.asList(1, 2, 3));
+        Iterator<Integer> iterator = set.iterator();
+        set.add(4);
+        set.remove(1);
+        List<Integer> seen = new ArrayList<>();
+        iterator.forEachRemaining(seen::add);
+        assertEquals(Arrays.asList(1, 2, 3), seen);
+        assertEquals(Arrays.asList(2, 3, 4), new ArrayList<>(set));
+    }
+
+    @Test
+    public void testSnapshotViews() throws Exception {
+        ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>(Arrays.asList(1, 2, 3, 5));
+        set.remove(2);
+        set.add(4);
+        NavigableSet<Integer> head = set.headSet(4, true);
+        NavigableSet<Integer> descending = set.descendingSet();
+        set.add(0);
+        set.remove(3);
+        set.addAll(Arrays.asList(2, 6));
+        assertEquals(Arrays.asList(1, 3, 4), new ArrayList<>(head));
+        assertEquals(Arrays.asList(5, 4, 3, 1), new ArrayList<>(descending));
+        assertEquals(Arrays.asList(0, 1, 2, 4, 5, 6), new ArrayList<>(set));
+        assertEquals(Arrays.asList(2, 4), new ArrayList<>(set.subSet(1, false, 5, false)));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testFirstOfEmpty() throws Exception {
+        new ConcurrentArraySet<Integer>().first();
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        ConcurrentArraySet<Integer> set = new ConcurrentArraySet<>();
+        for (int i = 0; i < 1000; i += 2) {
+            set.add(i);
+        }
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicBoolean finished = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (!finished.get()) {
+                // even numbers are never touched by writers
+                for (int i = 0; i < 1000; i += 2) {
+                    if (!set.contains(i) || set.floor(i) != i) {
+                        failed.set(true);
+                    }
+                }
+            }
+        });
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            int shift = w;
+            writers[w] = new Thread(() -> {
+                for (int round = 0; round < 200; round++) {
+                    for (int i = 1 + 2 * shift; i < 1000; i += 2 * writers.length) {
+                        set.add(i);
+                    }
+                    for (int i = 1 + 2 * shift; i < 1000; i += 2 * writers.length) {
+                        set.remove(i);
+                    }
+                }
+            });
+        }
+        reader.start();
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        finished.set(true);
+        reader.join();
+        assertFalse(failed.get());
+        assertEquals(500, set.size());
+    }
+}
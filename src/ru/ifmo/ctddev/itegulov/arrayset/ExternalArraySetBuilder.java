@@ -0,0 +1,504 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Builds sets from inputs, which don't fit in memory, by external merge sort. Elements are
+ * read from an iterator in runs of at most {@code runSize} elements; every run is sorted,
+ * deduplicated and spilled to a temporary file with given {@link Serializer}. Then runs
+ * are merged (in several passes, if there are more than {@link #MAX_FAN_IN} of them) with
+ * a priority queue, dropping duplicates. Only the runs being merged have to be in memory
+ * at once, and temporary files are removed when building is finished.
+ * <p>
+ * The result is either an on-heap {@link ArraySet} of distinct elements ({@link #build})
+ * or, for {@code long} keys, a file, which is served by {@link MappedLongArraySet}
+ * ({@link #buildMapped}).
+ *
+ * @author Daniyar Itegulov
+ */
+public class ExternalArraySetBuilder<T> {
+    private static final int MAX_FAN_IN = 64;
+    private static final int DEFAULT_RUN_SIZE = 1 << 20;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes elements to temporary files and reads them back.
+     *
+     * @param <T> type of elements
+     */
+    public interface Serializer<T> {
+        void write(DataOutput out, T value) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    /**
+     * Serializer of {@link Long} values as 8 bytes.
+     */
+    public static final Serializer<Long> LONG_SERIALIZER = new Serializer<Long>() {
+        @Override
+        public void write(DataOutput out, Long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    };
+
+    /**
+     * Serializer of {@link String} values in modified UTF-8, which are at most 65535 bytes long.
+     */
+    public static final Serializer<String> STRING_SERIALIZER = new Serializer<String>() {
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+            out.writeUTF(value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    private final Comparator<T> comparator;
+    private final boolean isNatural;
+    private final Serializer<T> serializer;
+    private int runSize = DEFAULT_RUN_SIZE;
+    private Path tempDirectory;
+
+    /**
+     * Creates builder for sets with natural ordering of elements.
+     *
+     * @param serializer serializer of elements
+     */
+    public ExternalArraySetBuilder(Serializer<T> serializer) {
+        this(ArraySet.naturalOrder(), true, serializer);
+    }
+
+    /**
+     * Creates builder for sets ordered by given comparator.
+     *
+     * @param comparator comparator to use
+     * @param serializer serializer of elements
+     */
+    public ExternalArraySetBuilder(Comparator<T> comparator, Serializer<T> serializer) {
+        this(comparator, false, serializer);
+    }
+
+    private ExternalArraySetBuilder(Comparator<T> comparator, boolean isNatural, Serializer<T> serializer) {
+        this.comparator = comparator;
+        this.isNatural = isNatural;
+        this.serializer = serializer;
+    }
+
+    /**
+     * Sets maximal number of elements, which are sorted in memory at once.
+     *
+     * @param runSize size of a run, default is {@code 2^20}
+     * @return this builder
+     */
+    public ExternalArraySetBuilder<T> runSize(int runSize) {
+        if (runSize < 1) {
+            throw new IllegalArgumentException("Run size must be positive: " + runSize);
+        }
+        this.runSize = runSize;
+        return this;
+    }
+
+    /**
+     * Sets directory for temporary files.
+     *
+     * @param tempDirectory directory to use, default is the system temporary directory
+     * @return this builder
+     */
+    public ExternalArraySetBuilder<T> tempDirectory(Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+        return this;
+    }
+
+    /**
+     * Creates on-heap set of distinct elements of given iterator.
+     *
+     * @param elements elements of the set
+     * @return new set
+     * @throws IOException if an I/O error occurs with temporary files
+     */
+    public ArraySet<T> build(Iterator<? extends T> elements) throws IOException {
+        ArraySet.Builder<T> builder = isNatural ? new ArraySet.Builder<>() : new ArraySet.Builder<>(comparator);
+        try (SortedRuns runs = sort(elements)) {
+            Iterator<T> merged = runs.merge();
+            while (merged.hasNext()) {
+                builder.add(merged.next());
+            }
+        } catch (RunReadException e) {
+            throw e.getCause();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Writes distinct values of given iterator to a file and maps it into memory.
+     *
+     * @param values elements of the set
+     * @param file file to write, existing one is replaced
+     * @return set, backed by the written file
+     * @throws IOException if an I/O error occurs
+     */
+    public static MappedLongArraySet buildMapped(Iterator<Long> values, Path file) throws IOException {
+        return buildMapped(new ExternalArraySetBuilder<>(LONG_SERIALIZER), values, file);
+    }
+
+    /**
+     * Same as {@link #buildMapped(Iterator, Path)}, but uses given builder settings.
+     *
+     * @param builder builder of {@code long} values with natural ordering
+     * @param values elements of the set
+     * @param file file to write, existing one is replaced
+     * @return set, backed by the written file
+     * @throws IOException if an I/O error occurs
+     */
+    public static MappedLongArraySet buildMapped(ExternalArraySetBuilder<Long> builder,
+                                                 Iterator<Long> values, Path file) throws IOException {
+        if (!builder.isNatural) {
+            throw new IllegalArgumentException("Mapped sets are ordered naturally");
+        }
+        try (ExternalArraySetBuilder<Long>.SortedRuns runs = builder.sort(values)) {
+            Iterator<Long> merged = runs.merge();
+            MappedLongArraySet.writeSorted(file, new PrimitiveIterator.OfLong() {
+                @Override
+                public boolean hasNext() {
+                    return merged.hasNext();
+                }
+
+                @Override
+                public long nextLong() {
+                    return merged.next();
+                }
+            });
+        } catch (RunReadException e) {
+            throw e.getCause();
+        }
+        return MappedLongArraySet.open(file);
+    }
+
+    /**
+     * Splits elements into sorted runs and spills them to files, unless there is only one run.
+     */
+    @SuppressWarnings("unchecked")
+    private SortedRuns sort(Iterator<? extends T> elements) throws IOException {
+        SortedRuns runs = new SortedRuns();
+        try {
+            Object[] buffer = new Object[16];
+            while (true) {
+                int size = 0;
+                while (size < runSize && elements.hasNext()) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, Math.min(runSize, buffer.length * 2));
+                    }
+                    buffer[size++] = elements.next();
+                }
+                Arrays.parallelSort((T[]) buffer, 0, size, comparator);
+                if (!elements.hasNext() && runs.files.isEmpty()) {
+                    runs.last = (T[]) buffer;
+                    runs.lastSize = size;
+                    return runs;
+                }
+                runs.files.add(spill(new ArrayIterator(buffer, size)));
+                if (!elements.hasNext()) {
+                    return runs;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            runs.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes distinct elements of sorted iterator to a new temporary file.
+     */
+    private Path spill(Iterator<T> sorted) throws IOException {
+        Path file = tempDirectory == null ? Files.createTempFile("arrayset", ".run")
+                : Files.createTempFile(tempDirectory, "arrayset", ".run");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file), BUFFER_SIZE))) {
+            T previous = null;
+            boolean first = true;
+            while (sorted.hasNext()) {
+                T element = sorted.next();
+                if (first || comparator.compare(previous, element) != 0) {
+                    serializer.write(out, element);
+                }
+                previous = element;
+                first = false;
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    private class ArrayIterator implements Iterator<T> {
+        private final Object[] array;
+        private final int size;
+        private int index = 0;
+
+        private ArrayIterator(Object[] array, int size) {
+            this.array = array;
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (index >= size) {
+                throw new NoSuchElementException();
+            }
+            return (T) array[index++];
+        }
+    }
+
+    /**
+     * Reads elements of one spilled run. Bytes consumed by the serializer are counted,
+     * so that the end of the run is detected without relying on {@link EOFException}.
+     */
+    private class RunReader extends FilterInputStream {
+        private final DataInputStream data = new DataInputStream(this);
+        private final long length;
+        private long read = 0;
+        private T current;
+
+        private RunReader(Path file) throws IOException {
+            super(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+            this.length = Files.size(file);
+        }
+
+        /**
+         * @return {@code false} if there are no more elements in the run
+         */
+        private boolean advance() throws IOException {
+            if (read == length) {
+                return false;
+            }
+            current = serializer.read(data);
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result >= 0) {
+                read++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if (result > 0) {
+                read += result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long result = super.skip(n);
+            read += result;
+            return result;
+        }
+    }
+
+    /**
+     * Sorted runs of the input: either spilled files, or the only run, which is kept in memory
+     * if the whole input fits in it.
+     */
+    private class SortedRuns implements Closeable {
+        private final List<Path> files = new ArrayList<>();
+        private T[] last;
+        private int lastSize;
+        private MergingIterator readers;
+
+        /**
+         * Merges runs down to at most {@link #MAX_FAN_IN} files and opens them. Returned iterator
+         * throws {@link RunReadException} if reading of a run fails.
+         *
+         * @return iterator over distinct elements of all runs in sorted order
+         */
+        private Iterator<T> merge() throws IOException {
+            if (last != null) {
+                return new DistinctIterator(new ArrayIterator(last, lastSize));
+            }
+            while (files.size() > MAX_FAN_IN) {
+                List<Path> group = new ArrayList<>(files.subList(0, MAX_FAN_IN));
+                Path merged;
+                try (MergingIterator iterator = new MergingIterator(group)) {
+                    merged = spill(iterator);
+                } catch (RunReadException e) {
+                    throw e.getCause();
+                }
+                files.add(merged);
+                for (Path file : group) {
+                    Files.deleteIfExists(file);
+                }
+                files.subList(0, MAX_FAN_IN).clear();
+            }
+            MergingIterator iterator = new MergingIterator(new ArrayList<>(files));
+            readers = iterator;
+            return new DistinctIterator(iterator);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException exception = null;
+            if (readers != null) {
+                try {
+                    readers.close();
+                } catch (IOException e) {
+                    exception = e;
+                }
+            }
+            for (Path file : files) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    exception = e;
+                }
+            }
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Merges several runs by a priority queue of their current elements. Equal elements
+     * of different runs are returned one after another.
+     */
+    private class MergingIterator implements Iterator<T>, Closeable {
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> queue;
+
+        private MergingIterator(List<Path> files) throws IOException {
+            queue = new PriorityQueue<>(Math.max(1, files.size()), (a, b) -> comparator.compare(a.current, b.current));
+            try {
+                for (Path file : files) {
+                    RunReader reader = new RunReader(file);
+                    readers.add(reader);
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            RunReader reader = queue.poll();
+            if (reader == null) {
+                throw new NoSuchElementException();
+            }
+            T result = reader.current;
+            try {
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            } catch (IOException e) {
+                throw new RunReadException(e);
+            }
+            return result;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException exception = null;
+            for (RunReader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    exception = e;
+                }
+            }
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Wraps {@link IOException}, which occurred while reading a run, to pass it through
+     * {@link Iterator#next}. Unlike {@link UncheckedIOException}, it can't come from the input.
+     */
+    private static class RunReadException extends RuntimeException {
+        private static final long serialVersionUID = 4617209388271564003L;
+
+        private RunReadException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * Skips elements of sorted iterator, which are equal to the previous one.
+     */
+    private class DistinctIterator implements Iterator<T> {
+        private final Iterator<T> sorted;
+        private T next;
+        private boolean hasNext;
+
+        private DistinctIterator(Iterator<T> sorted) {
+            this.sorted = sorted;
+            this.hasNext = sorted.hasNext();
+            if (hasNext) {
+                next = sorted.next();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            T result = next;
+            hasNext = false;
+            while (sorted.hasNext()) {
+                T candidate = sorted.next();
+                if (comparator.compare(result, candidate) != 0) {
+                    next = candidate;
+                    hasNext = true;
+                    break;
+                }
+            }
+            return result;
+        }
+    }
+}
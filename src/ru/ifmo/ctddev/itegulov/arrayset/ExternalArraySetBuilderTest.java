@@ -0,0 +1,137 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ExternalArraySetBuilderTest {
+    private static final Random RANDOM = new Random(3239);
+
+    private static List<Long> randomLongs(int size, int bound) {
+        List<Long> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add((long) RANDOM.nextInt(bound) - bound / 2);
+        }
+        return result;
+    }
+
+    private static Path tempDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("arrayset");
+        directory.toFile().deleteOnExit();
+        return directory;
+    }
+
+    private static void assertEmptyDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(Collections.emptyList(), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        List<Long> values = randomLongs(1000, 500);
+        Path directory = tempDirectory();
+        ArraySet<Long> set = new ExternalArraySetBuilder<>(ExternalArraySetBuilder.LONG_SERIALIZER)
+                .tempDirectory(directory)
+                .build(values.iterator());
+        assertEquals(new ArrayList<>(new TreeSet<>(values)), new ArrayList<>(set));
+        assertEmptyDirectory(directory);
+    }
+
+    @Test
+    public void testSpilledRuns() throws Exception {
+        List<Long> values = randomLongs(5000, 3000);
+        Path directory = tempDirectory();
+        ArraySet<Long> set = new ExternalArraySetBuilder<>(ExternalArraySetBuilder.LONG_SERIALIZER)
+                .tempDirectory(directory)
+                .runSize(100)
+                .build(values.iterator());
+        assertEquals(new ArrayList<>(new TreeSet<>(values)), new ArrayList<>(set));
+        assertEmptyDirectory(directory);
+    }
+
+    @Test
+    public void testMultiPassMerge() throws Exception {
+        List<Long> values = randomLongs(20000, 10000);
+        Path directory = tempDirectory();
+        ArraySet<Long> set = new ExternalArraySetBuilder<>(ExternalArraySetBuilder.LONG_SERIALIZER)
+                .tempDirectory(directory)
+                .runSize(10)
+                .build(values.iterator());
+        assertEquals(new ArrayList<>(new TreeSet<>(values)), new ArrayList<>(set));
+        assertEmptyDirectory(directory);
+    }
+
+    @Test
+    public void testComparator() throws Exception {
+        List<String> values = Arrays.asList("b", "A", "a", "c", "B", "d", "C", "e", "a");
+        Comparator<String> comparator = String.CASE_INSENSITIVE_ORDER;
+        ArraySet<String> set = new ExternalArraySetBuilder<>(comparator, ExternalArraySetBuilder.STRING_SERIALIZER)
+                .runSize(2)
+                .build(values.iterator());
+        TreeSet<String> expected = new TreeSet<>(comparator);
+        expected.addAll(values);
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+        assertEquals(comparator, set.comparator());
+    }
+
+    @Test
+    public void testMapped() throws Exception {
+        List<Long> values = randomLongs(5000, 1000000);
+        Path directory = tempDirectory();
+        Path file = Files.createTempFile("arrayset", ".bin");
+        file.toFile().deleteOnExit();
+        MappedLongArraySet set = ExternalArraySetBuilder.buildMapped(
+                new ExternalArraySetBuilder<>(ExternalArraySetBuilder.LONG_SERIALIZER).tempDirectory(directory).runSize(300),
+                values.iterator(), file);
+        assertEquals(new TreeSet<>(values), set);
+        assertEquals(new ArrayList<>(new TreeSet<>(values)), new ArrayList<>(MappedLongArraySet.open(file)));
+        assertEmptyDirectory(directory);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        ArraySet<Long> set = new ExternalArraySetBuilder<>(ExternalArraySetBuilder.LONG_SERIALIZER)
+                .build(Collections.emptyIterator());
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testFailingInput() throws Exception {
+        Path directory = tempDirectory();
+        Iterator<Long> failing = new Iterator<Long>() {
+            private int count = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Long next() {
+                if (++count > 1000) {
+                    throw new UncheckedIOException(new IOException("input is broken"));
+                }
+                return (long) count;
+            }
+        };
+        try {
+            new ExternalArraySetBuilder<>(ExternalArraySetBuilder.LONG_SERIALIZER)
+                    .tempDirectory(directory)
+                    .runSize(100)
+                    .build(failing);
+            fail();
+        } catch (UncheckedIOException e) {
+            assertEquals("input is broken", e.getCause().getMessage());
+        }
+        assertEmptyDirectory(directory);
+    }
+}
@@ -0,0 +1,118 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+/**
+ * Helper methods for keeping sorted keys in Eytzinger (BFS) order: root of
+ * implicit binary search tree is stored at position 1, children of node
+ * {@code k} are stored at positions {@code 2k} and {@code 2k + 1}, position 0
+ * is unused. Top levels of the tree are packed together at the beginning of the
+ * array, so they stay in cache, and the descent is branchless. Java can't issue a
+ * prefetch: loads, whose values are dropped, are removed by JIT, and keeping them alive
+ * through a shared field would make every lookup write to it, so nothing is loaded in
+ * advance.
+ * <p>
+ * Positions of the last level can exceed {@code Integer.MAX_VALUE} for layouts of more
+ * than 2<sup>30</sup> keys, then they overflow to negative values, which are treated as
+ * unsigned ones.
+ * <p>
+ * Searches return position in layout or {@code 0} if there is no such key.
+ *
+ * @author Daniyar Itegulov
+ */
+final class EytzingerLayout {
+    private EytzingerLayout() {
+    }
+
+    static int[] build(int[] sorted, int size) {
+        int[] layout = new int[size + 1];
+        fill(sorted, layout, 0, 1);
+        return layout;
+    }
+
+    static long[] build(long[] sorted, int size) {
+        long[] layout = new long[size + 1];
+        fill(sorted, layout, 0, 1);
+        return layout;
+    }
+
+    private static int fill(int[] sorted, int[] layout, int i, int k) {
+        if (k > 0 && k < layout.length) {
+            i = fill(sorted, layout, i, 2 * k);
+            layout[k] = sorted[i++];
+            i = fill(sorted, layout, i, 2 * k + 1);
+        }
+        return i;
+    }
+
+    private static int fill(long[] sorted, long[] layout, int i, int k) {
+        if (k > 0 && k < layout.length) {
+            i = fill(sorted, layout, i, 2 * k);
+            layout[k] = sorted[i++];
+            i = fill(sorted, layout, i, 2 * k + 1);
+        }
+        return i;
+    }
+
+    /**
+     * Goes down the tree, turning right while key in node is less than
+     * (or equal to, if {@code inclusive}) given key.
+     */
+    private static int descend(int[] layout, int key, boolean inclusive) {
+        int k = 1;
+        if (inclusive) {
+            while (k > 0 && k < layout.length) {
+                k = 2 * k + (layout[k] <= key ? 1 : 0);
+            }
+        } else {
+            while (k > 0 && k < layout.length) {
+                k = 2 * k + (layout[k] < key ? 1 : 0);
+            }
+        }
+        return k;
+    }
+
+    private static int descend(long[] layout, long key, boolean inclusive) {
+        int k = 1;
+        if (inclusive) {
+            while (k > 0 && k < layout.length) {
+                k = 2 * k + (layout[k] <= key ? 1 : 0);
+            }
+        } else {
+            while (k > 0 && k < layout.length) {
+                k = 2 * k + (layout[k] < key ? 1 : 0);
+            }
+        }
+        return k;
+    }
+
+    private static int lastRightTurn(int k) {
+        return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+    }
+
+    private static int lastLeftTurn(int k) {
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * @return position of the greatest key less than (or equal to, if not {@code strict})
+     * given one, or {@code 0}
+     */
+    static int floor(int[] layout, int key, boolean strict) {
+        return lastRightTurn(descend(layout, key, !strict));
+    }
+
+    /**
+     * @return position of the least key greater than (or equal to, if not {@code strict})
+     * given one, or {@code 0}
+     */
+    static int ceiling(int[] layout, int key, boolean strict) {
+        return lastLeftTurn(descend(layout, key, strict));
+    }
+
+    static int floor(long[] layout, long key, boolean strict) {
+        return lastRightTurn(descend(layout, key, !strict));
+    }
+
+    static int ceiling(long[] layout, long key, boolean strict) {
+        return lastLeftTurn(descend(layout, key, strict));
+    }
+}
@@ -0,0 +1,411 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable {@link java.util.NavigableSet} of {@code long} values, which keeps
+ * its elements in a sorted {@code long[]} instead of an array of boxed
+ * {@link java.lang.Long}. Besides usual {@code NavigableSet} methods it
+ * provides unboxed ones ({@link #containsLong}, {@link #floorLong},
+ * {@link #ceilingLong} and so on), which don't allocate anything.
+ * <p>
+ * Every view ({@link #headSet}, {@link #tailSet}, {@link #subSet},
+ * {@link #descendingSet}) shares backing array with the original set and is
+ * created in O(log n).
+ * <p>
+ * Sets of at most 2<sup>19</sup> elements additionally keep a copy of them in
+ * {@link EytzingerLayout}, which is used for lookups instead of binary search.
+ *
+ * @author Daniyar Itegulov
+ */
+public class LongArraySet extends AbstractSet<Long> implements NavigableSet<Long> {
+    /**
+     * Layout of this size takes the same 4 MB, as the largest one of {@link IntArraySet}
+     * (see {@link IntArraySet#MAX_LAYOUT_SIZE}), beyond that plain binary search is faster.
+     */
+    static final int MAX_LAYOUT_SIZE = 1 << 19;
+
+    private final long[] data;
+    private final long[] layout;
+    private final int from;
+    private final int to;
+    private final boolean descending;
+
+    public LongArraySet() {
+        this(new long[0], null, 0, 0, false);
+    }
+
+    public LongArraySet(long... values) {
+        long[] copy = values.clone();
+        Arrays.sort(copy);
+        this.data = copy;
+        this.from = 0;
+        this.to = unique(copy);
+        this.descending = false;
+        this.layout = to <= MAX_LAYOUT_SIZE ? EytzingerLayout.build(copy, to) : null;
+    }
+
+    public LongArraySet(Collection<? extends Long> collection) {
+        this(toLongArray(collection));
+    }
+
+    private LongArraySet(long[] data, long[] layout, int from, int to, boolean descending) {
+        this.data = data;
+        this.layout = layout;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+    }
+
+    private static long[] toLongArray(Collection<? extends Long> collection) {
+        long[] result = new long[collection.size()];
+        int i = 0;
+        for (Long value : collection) {
+            result[i++] = value;
+        }
+        return result;
+    }
+
+    private static int unique(long[] sorted) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int size = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[size - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size;
+    }
+
+    private int search(long key) {
+        return Arrays.binarySearch(data, from, to, key);
+    }
+
+    private int ascendingLower(long key) {
+        int index = search(key);
+        return index >= 0 ? index - 1 : -index - 2;
+    }
+
+    private int ascendingFloor(long key) {
+        int index = search(key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private int ascendingCeiling(long key) {
+        int index = search(key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private int ascendingHigher(long key) {
+        int index = search(key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private boolean inRange(int index) {
+        return index >= from && index < to;
+    }
+
+    private boolean hasAscendingFloor(long key, boolean strict) {
+        return from < to && (strict ? data[from] < key : data[from] <= key);
+    }
+
+    private boolean hasAscendingCeiling(long key, boolean strict) {
+        return from < to && (strict ? data[to - 1] > key : data[to - 1] >= key);
+    }
+
+    private long ascendingFloorValue(long key, boolean strict, long absent) {
+        if (layout == null) {
+            int index = strict ? ascendingLower(key) : ascendingFloor(key);
+            return inRange(index) ? data[index] : absent;
+        }
+        int position = EytzingerLayout.floor(layout, key, strict);
+        if (position == 0 || from == to || layout[position] < data[from]) {
+            return absent;
+        }
+        return Math.min(layout[position], data[to - 1]);
+    }
+
+    private long ascendingCeilingValue(long key, boolean strict, long absent) {
+        if (layout == null) {
+            int index = strict ? ascendingHigher(key) : ascendingCeiling(key);
+            return inRange(index) ? data[index] : absent;
+        }
+        int position = EytzingerLayout.ceiling(layout, key, strict);
+        if (position == 0 || from == to || layout[position] > data[to - 1]) {
+            return absent;
+        }
+        return Math.max(layout[position], data[from]);
+    }
+
+    /**
+     * Returns {@code true} if this set contains the specified value.
+     *
+     * @param value value whose presence in this set is to be tested
+     * @return {@code true} if this set contains {@code value}
+     */
+    public boolean containsLong(long value) {
+        if (layout == null) {
+            return search(value) >= 0;
+        }
+        if (from == to || value < data[from] || value > data[to - 1]) {
+            return false;
+        }
+        int position = EytzingerLayout.floor(layout, value, false);
+        return position != 0 && layout[position] == value;
+    }
+
+    /**
+     * Returns the greatest element in this set strictly less than the given
+     * element, or {@code absent} if there is no such element.
+     *
+     * @param value the value to match
+     * @param absent value to return if there is no such element
+     * @return the greatest element less than {@code value}, or {@code absent}
+     */
+    public long lowerLong(long value, long absent) {
+        return descending ? ascendingCeilingValue(value, true, absent) : ascendingFloorValue(value, true, absent);
+    }
+
+    /**
+     * Returns the greatest element in this set less than or equal to the given
+     * element, or {@code absent} if there is no such element.
+     *
+     * @param value the value to match
+     * @param absent value to return if there is no such element
+     * @return the greatest element less than or equal to {@code value}, or {@code absent}
+     */
+    public long floorLong(long value, long absent) {
+        return descending ? ascendingCeilingValue(value, false, absent) : ascendingFloorValue(value, false, absent);
+    }
+
+    /**
+     * Returns the least element in this set greater than or equal to the given
+     * element, or {@code absent} if there is no such element.
+     *
+     * @param value the value to match
+     * @param absent value to return if there is no such element
+     * @return the least element greater than or equal to {@code value}, or {@code absent}
+     */
+    public long ceilingLong(long value, long absent) {
+        return descending ? ascendingFloorValue(value, false, absent) : ascendingCeilingValue(value, false, absent);
+    }
+
+    /**
+     * Returns the least element in this set strictly greater than the given
+     * element, or {@code absent} if there is no such element.
+     *
+     * @param value the value to match
+     * @param absent value to return if there is no such element
+     * @return the least element greater than {@code value}, or {@code absent}
+     */
+    public long higherLong(long value, long absent) {
+        return descending ? ascendingFloorValue(value, true, absent) : ascendingCeilingValue(value, true, absent);
+    }
+
+    /**
+     * @return the first (lowest) element currently in this set
+     * @throws NoSuchElementException if this set is empty
+     */
+    public long firstLong() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return descending ? data[to - 1] : data[from];
+    }
+
+    /**
+     * @return the last (highest) element currently in this set
+     * @throws NoSuchElementException if this set is empty
+     */
+    public long lastLong() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return descending ? data[from] : data[to - 1];
+    }
+
+    /**
+     * @return iterator over unboxed elements of this set in its order
+     */
+    public PrimitiveIterator.OfLong longIterator() {
+        return descending ? descendingLongIterator(from, to) : ascendingLongIterator(from, to);
+    }
+
+    /**
+     * @return new array, containing all elements of this set in its order
+     */
+    public long[] toLongArray() {
+        long[] result = Arrays.copyOfRange(data, from, to);
+        if (descending) {
+            for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                long tmp = result[i];
+                result[i] = result[j];
+                result[j] = tmp;
+            }
+        }
+        return result;
+    }
+
+    private PrimitiveIterator.OfLong ascendingLongIterator(int from, int to) {
+        return new PrimitiveIterator.OfLong() {
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public long nextLong() {
+                if (index >= to) {
+                    throw new NoSuchElementException();
+                }
+                return data[index++];
+            }
+        };
+    }
+
+    private PrimitiveIterator.OfLong descendingLongIterator(int from, int to) {
+        return new PrimitiveIterator.OfLong() {
+            private int index = to - 1;
+
+            @Override
+            public boolean hasNext() {
+                return index >= from;
+            }
+
+            @Override
+            public long nextLong() {
+                if (index < from) {
+                    throw new NoSuchElementException();
+                }
+                return data[index--];
+            }
+        };
+    }
+
+    @Override
+    public Long lower(Long value) {
+        return (descending ? hasAscendingCeiling(value, true) : hasAscendingFloor(value, true)) ? lowerLong(value, 0) : null;
+    }
+
+    @Override
+    public Long floor(Long value) {
+        return (descending ? hasAscendingCeiling(value, false) : hasAscendingFloor(value, false)) ? floorLong(value, 0) : null;
+    }
+
+    @Override
+    public Long ceiling(Long value) {
+        return (descending ? hasAscendingFloor(value, false) : hasAscendingCeiling(value, false)) ? ceilingLong(value, 0) : null;
+    }
+
+    @Override
+    public Long higher(Long value) {
+        return (descending ? hasAscendingFloor(value, true) : hasAscendingCeiling(value, true)) ? higherLong(value, 0) : null;
+    }
+
+    @Override
+    public Long pollFirst() {
+        throw new UnsupportedOperationException("pollFirst");
+    }
+
+    @Override
+    public Long pollLast() {
+        throw new UnsupportedOperationException("pollLast");
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return longIterator();
+    }
+
+    @Override
+    public NavigableSet<Long> descendingSet() {
+        return new LongArraySet(data, layout, from, to, !descending);
+    }
+
+    @Override
+    public Iterator<Long> descendingIterator() {
+        return descending ? ascendingLongIterator(from, to) : descendingLongIterator(from, to);
+    }
+
+    @Override
+    public NavigableSet<Long> subSet(Long fromElement, boolean fromInclusive,
+                                        Long toElement, boolean toInclusive) {
+        if (descending ? fromElement < toElement : fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return headSet(toElement, toInclusive).tailSet(fromElement, fromInclusive);
+    }
+
+    @Override
+    public NavigableSet<Long> headSet(Long toElement, boolean inclusive) {
+        if (descending) {
+            int newFrom = inclusive ? ascendingCeiling(toElement) : ascendingHigher(toElement);
+            return new LongArraySet(data, layout, newFrom, to, true);
+        }
+        int newTo = inclusive ? ascendingHigher(toElement) : ascendingCeiling(toElement);
+        return new LongArraySet(data, layout, from, newTo, false);
+    }
+
+    @Override
+    public NavigableSet<Long> tailSet(Long fromElement, boolean inclusive) {
+        if (descending) {
+            int newTo = inclusive ? ascendingHigher(fromElement) : ascendingCeiling(fromElement);
+            return new LongArraySet(data, layout, from, newTo, true);
+        }
+        int newFrom = inclusive ? ascendingCeiling(fromElement) : ascendingHigher(fromElement);
+        return new LongArraySet(data, layout, newFrom, to, false);
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return descending ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public SortedSet<Long> subSet(Long fromElement, Long toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<Long> headSet(Long toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<Long> tailSet(Long fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && containsLong((Long) o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash += (int) (data[i] ^ (data[i] >>> 32));
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,532 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Immutable {@link java.util.NavigableSet} of {@code long} values, which are stored
+ * in a file and served straight from its memory-mapped contents. Opening a set takes
+ * O(1) regardless of its size: nothing is read or deserialized, pages are loaded by
+ * the OS on first access, and the data doesn't occupy Java heap.
+ * <p>
+ * File consists of a 16-byte header (magic number and number of elements) followed
+ * by sorted distinct elements, each one is 8 bytes in little-endian order. Such files
+ * are created by {@link #write} and {@link #writeSorted} and opened by {@link #open}.
+ * They are written to a temporary file next to the target one, which replaces the target
+ * only when it's complete, so a failed write never leaves a file, which looks like a set.
+ * As a single mapping can't exceed 2 GB, the file is mapped in several segments.
+ * <p>
+ * Besides usual {@code NavigableSet} methods, it provides the same unboxed ones
+ * as {@link LongArraySet}. Views share mapping with the original set.
+ *
+ * @author Daniyar Itegulov
+ */
+public class MappedLongArraySet extends AbstractSet<Long> implements NavigableSet<Long> {
+    private static final long MAGIC = 0x3130544553524141L; // "AARSET01"
+    private static final int HEADER_SIZE = 16;
+    private static final int SEGMENT_BITS = 27;
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private final LongBuffer[] segments;
+    private final int segmentBits;
+    private final int segmentMask;
+    private final int from;
+    private final int to;
+    private final boolean descending;
+
+    private MappedLongArraySet(LongBuffer[] segments, int segmentBits, int from, int to, boolean descending) {
+        this.segments = segments;
+        this.segmentBits = segmentBits;
+        this.segmentMask = (1 << segmentBits) - 1;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+    }
+
+    /**
+     * Maps set, which was written by {@link #write} or {@link #writeSorted}, into memory.
+     * The file must not be modified while the set is in use.
+     *
+     * @param file file to open
+     * @return set, backed by the contents of the file
+     * @throws IOException if an I/O error occurs or the file isn't a set file
+     */
+    public static MappedLongArraySet open(Path file) throws IOException {
+        return open(file, SEGMENT_BITS);
+    }
+
+    static MappedLongArraySet open(Path file, int segmentBits) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the whole header
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getLong() != MAGIC) {
+                throw new IOException("Not a set file: " + file);
+            }
+            long size = header.getLong();
+            if (size < 0 || size > Integer.MAX_VALUE || channel.size() < HEADER_SIZE + 8 * size) {
+                throw new IOException("Corrupted set file: " + file);
+            }
+            long segmentSize = 1L << segmentBits;
+            LongBuffer[] segments = new LongBuffer[(int) ((size + segmentSize - 1) >> segmentBits)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * segmentSize;
+                long length = Math.min(segmentSize, size - start);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + 8 * start, 8 * length)
+                        .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+            return new MappedLongArraySet(segments, segmentBits, 0, (int) size, false);
+        }
+    }
+
+    /**
+     * Writes given values to a file, which can be opened by {@link #open}.
+     * Values are sorted and duplicates are removed.
+     *
+     * @param file file to write, existing one is replaced
+     * @param values values to write
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(Path file, long... values) throws IOException {
+        long[] copy = values.clone();
+        Arrays.sort(copy);
+        writeSorted(file, Arrays.stream(copy, 0, unique(copy)).iterator());
+    }
+
+    /**
+     * Writes given values to a file, which can be opened by {@link #open}.
+     * Values are sorted and duplicates are removed.
+     *
+     * @param file file to write, existing one is replaced
+     * @param values values to write
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(Path file, Collection<? extends Long> values) throws IOException {
+        if (values instanceof LongArraySet && ((LongArraySet) values).comparator() == null) {
+            writeSorted(file, ((LongArraySet) values).longIterator());
+            return;
+        }
+        write(file, values.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    /**
+     * Writes strictly increasing values to a file, which can be opened by {@link #open},
+     * without keeping them in memory.
+     *
+     * @param file file to write, existing one is replaced
+     * @param values strictly increasing values to write
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if values are not strictly increasing
+     */
+    public static void writeSorted(Path file, PrimitiveIterator.OfLong values) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            writeContents(temp, values);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Writes values to an existing empty file and forces them to the storage. Header is
+     * written last, so until then the file isn't a set file.
+     */
+    private static void writeContents(Path file, PrimitiveIterator.OfLong values) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putLong(0).putLong(0);
+            long size = 0;
+            long previous = 0;
+            while (values.hasNext()) {
+                long value = values.nextLong();
+                if (size > 0 && value <= previous) {
+                    throw new IllegalArgumentException("Values are not strictly increasing: "
+                            + previous + ", " + value);
+                }
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+                buffer.putLong(value);
+                previous = value;
+                size++;
+            }
+            flush(channel, buffer);
+            buffer.putLong(MAGIC).putLong(size).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, HEADER_SIZE - buffer.remaining());
+            }
+            channel.force(false);
+        }
+    }
+
+    private static int unique(long[] sorted) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int size = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[size - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private long get(int index) {
+        return segments[index >>> segmentBits].get(index & segmentMask);
+    }
+
+    /**
+     * Same as {@link Arrays#binarySearch(long[], int, int, long)}, but over mapped data.
+     */
+    private int search(long key) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = get(mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int ascendingLower(long key) {
+        int index = search(key);
+        return index >= 0 ? index - 1 : -index - 2;
+    }
+
+    private int ascendingFloor(long key) {
+        int index = search(key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private int ascendingCeiling(long key) {
+        int index = search(key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private int ascendingHigher(long key) {
+        int index = search(key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private boolean inRange(int index) {
+        return index >= from && index < to;
+    }
+
+    private long valueOr(int index, long absent) {
+        return inRange(index) ? get(index) : absent;
+    }
+
+    private Long valueOrNull(int index) {
+        return inRange(index) ? get(index) : null;
+    }
+
+    private int lowerIndex(long value) {
+        return descending ? ascendingHigher(value) : ascendingLower(value);
+    }
+
+    private int floorIndex(long value) {
+        return descending ? ascendingCeiling(value) : ascendingFloor(value);
+    }
+
+    private int ceilingIndex(long value) {
+        return descending ? ascendingFloor(value) : ascendingCeiling(value);
+    }
+
+    private int higherIndex(long value) {
+        return descending ? ascendingLower(value) : ascendingHigher(value);
+    }
+
+    /**
+     * Returns {@code true} if this set contains the specified value.
+     *
+     * @param value value whose presence in this set is to be tested
+     * @return {@code true} if this set contains {@code value}
+     */
+    public boolean containsLong(long value) {
+        return search(value) >= 0;
+    }
+
+    /**
+     * Returns the greatest element in this set strictly less than the given
+     * element, or {@code absent} if there is no such element.
+     *
+     * @param value the value to match
+     * @param absent value to return if there is no such element
+     * @return the greatest element less than {@code value}, or {@code absent}
+     */
+    public long lowerLong(long value, long absent) {
+        return valueOr(lowerIndex(value), absent);
+    }
+
+    /**
+     * Returns the greatest element in this set less than or equal to the given
+     * element, or {@code absent} if there is no such element.
+     *
+     * @param value the value to match
+     * @param absent value to return if there is no such element
+     * @return the greatest element less than or equal to {@code value}, or {@code absent}
+     */
+    public long floorLong(long value, long absent) {
+        return valueOr(floorIndex(value), absent);
+    }
+
+    /**
+     * Returns the least element in this set greater than or equal to the given
+     * element, or {@code absent} if there is no such element.
+     *
+     * @param value the value to match
+     * @param absent value to return if there is no such element
+     * @return the least element greater than or equal to {@code value}, or {@code absent}
+     */
+    public long ceilingLong(long value, long absent) {
+        return valueOr(ceilingIndex(value), absent);
+    }
+
+    /**
+     * Returns the least element in this set strictly greater than the given
+     * element, or {@code absent} if there is no such element.
+     *
+     * @param value the value to match
+     * @param absent value to return if there is no such element
+     * @return the least element greater than {@code value}, or {@code absent}
+     */
+    public long higherLong(long value, long absent) {
+        return valueOr(higherIndex(value), absent);
+    }
+
+    /**
+     * @return the first (lowest) element currently in this set
+     * @throws NoSuchElementException if this set is empty
+     */
+    public long firstLong() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return descending ? get(to - 1) : get(from);
+    }
+
+    /**
+     * @return the last (highest) element currently in this set
+     * @throws NoSuchElementException if this set is empty
+     */
+    public long lastLong() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return descending ? get(from) : get(to - 1);
+    }
+
+    /**
+     * @return iterator over unboxed elements of this set in its order
+     */
+    public PrimitiveIterator.OfLong longIterator() {
+        return descending ? descendingLongIterator() : ascendingLongIterator();
+    }
+
+    /**
+     * @return new array, containing all elements of this set in its order
+     */
+    public long[] toLongArray() {
+        long[] result = new long[to - from];
+        PrimitiveIterator.OfLong iterator = longIterator();
+        for (int i = 0; i < result.length; i++) {
+            result[i] = iterator.nextLong();
+        }
+        return result;
+    }
+
+    private PrimitiveIterator.OfLong ascendingLongIterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public long nextLong() {
+                if (index >= to) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+
+    private PrimitiveIterator.OfLong descendingLongIterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int index = to - 1;
+
+            @Override
+            public boolean hasNext() {
+                return index >= from;
+            }
+
+            @Override
+            public long nextLong() {
+                if (index < from) {
+                    throw new NoSuchElementException();
+                }
+                return get(index--);
+            }
+        };
+    }
+
+    @Override
+    public Long lower(Long value) {
+        return valueOrNull(lowerIndex(value));
+    }
+
+    @Override
+    public Long floor(Long value) {
+        return valueOrNull(floorIndex(value));
+    }
+
+    @Override
+    public Long ceiling(Long value) {
+        return valueOrNull(ceilingIndex(value));
+    }
+
+    @Override
+    public Long higher(Long value) {
+        return valueOrNull(higherIndex(value));
+    }
+
+    @Override
+    public Long pollFirst() {
+        throw new UnsupportedOperationException("pollFirst");
+    }
+
+    @Override
+    public Long pollLast() {
+        throw new UnsupportedOperationException("pollLast");
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return longIterator();
+    }
+
+    @Override
+    public NavigableSet<Long> descendingSet() {
+        return new MappedLongArraySet(segments, segmentBits, from, to, !descending);
+    }
+
+    @Override
+    public Iterator<Long> descendingIterator() {
+        return descending ? ascendingLongIterator() : descendingLongIterator();
+    }
+
+    @Override
+    public NavigableSet<Long> subSet(Long fromElement, boolean fromInclusive,
+                                     Long toElement, boolean toInclusive) {
+        if (descending ? fromElement < toElement : fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return headSet(toElement, toInclusive).tailSet(fromElement, fromInclusive);
+    }
+
+    @Override
+    public NavigableSet<Long> headSet(Long toElement, boolean inclusive) {
+        if (descending) {
+            int newFrom = inclusive ? ascendingCeiling(toElement) : ascendingHigher(toElement);
+            return new MappedLongArraySet(segments, segmentBits, newFrom, to, true);
+        }
+        int newTo = inclusive ? ascendingHigher(toElement) : ascendingCeiling(toElement);
+        return new MappedLongArraySet(segments, segmentBits, from, newTo, false);
+    }
+
+    @Override
+    public NavigableSet<Long> tailSet(Long fromElement, boolean inclusive) {
+        if (descending) {
+            int newTo = inclusive ? ascendingHigher(fromElement) : ascendingCeiling(fromElement);
+            return new MappedLongArraySet(segments, segmentBits, from, newTo, true);
+        }
+        int newFrom = inclusive ? ascendingCeiling(fromElement) : ascendingHigher(fromElement);
+        return new MappedLongArraySet(segments, segmentBits, newFrom, to, false);
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return descending ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public SortedSet<Long> subSet(Long fromElement, Long toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<Long> headSet(Long toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<Long> tailSet(Long fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && containsLong((Long) o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            long value = get(i);
+            hash += (int) (value ^ (value >>> 32));
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,127 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static ru.ifmo.ctddev.itegulov.arrayset.NavigationAssert.assertSameNavigation;
+
+public class MappedLongArraySetTest {
+    private static final Random RANDOM = new Random(NavigationAssert.SEED);
+
+    private static Path tempFile() throws IOException {
+        Path file = Files.createTempFile("arrayset", ".bin");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    private static void assertSameSets(TreeSet<Long> treeSet, NavigableSet<Long> set, List<Long> probes) {
+        assertSameNavigation(treeSet, set, probes);
+        assertSameNavigation(treeSet.descendingSet(), set.descendingSet(), probes);
+        assertSameNavigation(treeSet.headSet(0L, true), set.headSet(0L, true), probes);
+        assertSameNavigation(treeSet.tailSet(-5000L, false), set.tailSet(-5000L, false), probes);
+        assertSameNavigation(treeSet.descendingSet().subSet(7000L, true, -7000L, false),
+                set.descendingSet().subSet(7000L, true, -7000L, false), probes);
+        assertEquals(treeSet.hashCode(), set.hashCode());
+        assertEquals(treeSet, set);
+    }
+
+    @Test
+    public void testNavigation() throws Exception {
+        long[] values = new long[2000];
+        TreeSet<Long> treeSet = new TreeSet<>();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = RANDOM.nextInt(20000) - 10000;
+            treeSet.add(values[i]);
+        }
+        Path file = tempFile();
+        MappedLongArraySet.write(file, values);
+        List<Long> probes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            probes.add((long) RANDOM.nextInt(22000) - 11000);
+        }
+        assertSameSets(treeSet, MappedLongArraySet.open(file), probes);
+        // small segments to check addressing across several mappings
+        assertSameSets(treeSet, MappedLongArraySet.open(file, 4), probes);
+    }
+
+    @Test
+    public void testUnboxed() throws Exception {
+        Path file = tempFile();
+        MappedLongArraySet.write(file, Arrays.asList(5L, 1L, 3L, 3L, 9L));
+        MappedLongArraySet set = MappedLongArraySet.open(file);
+        assertEquals(4, set.size());
+        assertArrayEquals(new long[]{1, 3, 5, 9}, set.toLongArray());
+        assertTrue(set.containsLong(3));
+        assertFalse(set.containsLong(4));
+        assertEquals(3, set.floorLong(4, -1));
+        assertEquals(-1, set.floorLong(0, -1));
+        assertEquals(5, set.ceilingLong(4, -1));
+        assertEquals(-1, set.higherLong(9, -1));
+        assertEquals(1, set.firstLong());
+        assertEquals(9, set.lastLong());
+
+        MappedLongArraySet descending = (MappedLongArraySet) set.descendingSet();
+        assertArrayEquals(new long[]{9, 5, 3, 1}, descending.toLongArray());
+        assertEquals(5, descending.floorLong(4, -1));
+        assertEquals(9, descending.firstLong());
+        assertEquals(Collections.reverseOrder(), descending.comparator());
+    }
+
+    @Test
+    public void testWriteArraySet() throws Exception {
+        LongArraySet source = new LongArraySet(Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE);
+        Path file = tempFile();
+        MappedLongArraySet.write(file, source);
+        assertEquals(source, MappedLongArraySet.open(file));
+        MappedLongArraySet.write(file, source.descendingSet());
+        assertEquals(new ArrayList<>(source), new ArrayList<>(MappedLongArraySet.open(file)));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        Path file = tempFile();
+        MappedLongArraySet.write(file);
+        MappedLongArraySet set = MappedLongArraySet.open(file);
+        assertEquals(0, set.size());
+        assertNull(set.floor(1L));
+        assertEquals(7, set.floorLong(1, 7));
+        assertFalse(set.iterator().hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWriteUnsorted() throws Exception {
+        MappedLongArraySet.writeSorted(tempFile(), Arrays.stream(new long[]{1, 3, 3}).iterator());
+    }
+
+    @Test
+    public void testFailedWriteKeepsFile() throws Exception {
+        Path directory = Files.createTempDirectory("arrayset");
+        Path file = directory.resolve("set.bin");
+        MappedLongArraySet.write(file, 1, 2);
+        try {
+            MappedLongArraySet.writeSorted(file, Arrays.stream(new long[]{5, 4}).iterator());
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        assertEquals(new TreeSet<>(Arrays.asList(1L, 2L)), MappedLongArraySet.open(file));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(Collections.singletonList(file), files.collect(Collectors.toList()));
+        }
+        Files.delete(file);
+        Files.delete(directory);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenForeignFile() throws Exception {
+        Path file = tempFile();
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+        MappedLongArraySet.open(file);
+    }
+}
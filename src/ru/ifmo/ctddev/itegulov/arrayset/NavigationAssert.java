@@ -0,0 +1,47 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Assertions, shared by tests of navigable sets.
+ *
+ * @author Daniyar Itegulov
+ */
+final class NavigationAssert {
+    /**
+     * Seed of random generators in tests, so that failures are reproducible.
+     */
+    static final long SEED = 3239;
+
+    private NavigationAssert() {
+    }
+
+    /**
+     * Checks that both sets contain the same elements in both directions and answer the same
+     * to navigation queries for every probe.
+     */
+    static <T> void assertSameNavigation(NavigableSet<T> expected, NavigableSet<T> actual, List<T> probes) {
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        List<T> descending = new ArrayList<>();
+        actual.descendingIterator().forEachRemaining(descending::add);
+        assertEquals(new ArrayList<>(expected.descendingSet()), descending);
+        assertEquals(new ArrayList<>(expected.descendingSet()), new ArrayList<>(actual.descendingSet()));
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        if (!expected.isEmpty()) {
+            assertEquals(expected.first(), actual.first());
+            assertEquals(expected.last(), actual.last());
+        }
+        for (T probe : probes) {
+            assertEquals(expected.lower(probe), actual.lower(probe));
+            assertEquals(expected.floor(probe), actual.floor(probe));
+            assertEquals(expected.ceiling(probe), actual.ceiling(probe));
+            assertEquals(expected.higher(probe), actual.higher(probe));
+            assertEquals(expected.contains(probe), actual.contains(probe));
+        }
+    }
+}
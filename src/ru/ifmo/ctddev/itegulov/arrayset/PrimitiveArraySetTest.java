@@ -0,0 +1,193 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static ru.ifmo.ctddev.itegulov.arrayset.NavigationAssert.assertSameNavigation;
+
+public class PrimitiveArraySetTest {
+    private static final Random RANDOM = new Random(NavigationAssert.SEED);
+    private static final int LARGE_SIZE = (1 << 18) + 1000;
+
+    private static int[] randomInts(int size, int bound) {
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = RANDOM.nextInt(bound) - bound / 2;
+        }
+        return result;
+    }
+
+    @Test
+    public void testIntNavigation() throws Exception {
+        int[] values = randomInts(1000, 400);
+        TreeSet<Integer> treeSet = new TreeSet<>();
+        for (int value : values) {
+            treeSet.add(value);
+        }
+        IntArraySet set = new IntArraySet(values);
+        List<Integer> probes = new ArrayList<>();
+        for (int i = -250; i < 250; i++) {
+            probes.add(i);
+        }
+        assertSameNavigation(treeSet, set, probes);
+        assertSameNavigation(treeSet.descendingSet(), set.descendingSet(), probes);
+        assertSameNavigation(treeSet.headSet(10, true), set.headSet(10, true), probes);
+        assertSameNavigation(treeSet.tailSet(-10, false), set.tailSet(-10, false), probes);
+        assertSameNavigation(treeSet.subSet(-100, true, 100, false), set.subSet(-100, true, 100, false), probes);
+        assertSameNavigation(treeSet.descendingSet().headSet(0, false).tailSet(150, true),
+                set.descendingSet().headSet(0, false).tailSet(150, true), probes);
+    }
+
+    @Test
+    public void testIntUnboxed() throws Exception {
+        IntArraySet set = new IntArraySet(5, 1, 3, 3, 9);
+        assertEquals(4, set.size());
+        assertArrayEquals(new int[]{1, 3, 5, 9}, set.toIntArray());
+        assertTrue(set.containsInt(3));
+        assertFalse(set.containsInt(4));
+        assertEquals(3, set.floorInt(4, -1));
+        assertEquals(-1, set.floorInt(0, -1));
+        assertEquals(5, set.ceilingInt(4, -1));
+        assertEquals(-1, set.ceilingInt(10, -1));
+        assertEquals(3, set.lowerInt(5, -1));
+        assertEquals(9, set.higherInt(5, -1));
+        assertEquals(1, set.firstInt());
+        assertEquals(9, set.lastInt());
+
+        IntArraySet descending = (IntArraySet) set.descendingSet();
+        assertArrayEquals(new int[]{9, 5, 3, 1}, descending.toIntArray());
+        assertEquals(5, descending.floorInt(4, -1));
+        assertEquals(3, descending.ceilingInt(4, -1));
+        assertEquals(9, descending.firstInt());
+        assertEquals(Collections.reverseOrder(), descending.comparator());
+    }
+
+    @Test
+    public void testLongNavigation() throws Exception {
+        long[] values = new long[1000];
+        TreeSet<Long> treeSet = new TreeSet<>();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (RANDOM.nextInt(400) - 200) * 1000000007L;
+            treeSet.add(values[i]);
+        }
+        LongArraySet set = new LongArraySet(values);
+        List<Long> probes = new ArrayList<>();
+        for (int i = -250; i < 250; i++) {
+            probes.add(i * 1000000007L);
+            probes.add(i * 1000000007L + 1);
+        }
+        assertSameNavigation(treeSet, set, probes);
+        assertSameNavigation(treeSet.descendingSet(), set.descendingSet(), probes);
+        assertSameNavigation(treeSet.subSet(-100000000700L, false, 0L, true), set.subSet(-100000000700L, false, 0L, true), probes);
+        assertEquals(treeSet.hashCode(), set.hashCode());
+        assertEquals(treeSet, set);
+    }
+
+    @Test
+    public void testLargeIntSet() throws Exception {
+        int[] values = randomInts(LARGE_SIZE, 1000000);
+        TreeSet<Integer> treeSet = new TreeSet<>();
+        for (int value : values) {
+            treeSet.add(value);
+        }
+        IntArraySet set = new IntArraySet(values);
+        List<Integer> probes = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            probes.add(RANDOM.nextInt(1000002) - 500001);
+        }
+        assertSameNavigation(treeSet, set, probes);
+        assertSameNavigation(treeSet.descendingSet(), set.descendingSet(), probes);
+        assertSameNavigation(treeSet.subSet(-1000, true, 1000, true), set.subSet(-1000, true, 1000, true), probes);
+        assertSameNavigation(treeSet.descendingSet().tailSet(200000, false), set.descendingSet().tailSet(200000, false), probes);
+        for (Integer probe : probes) {
+            assertEquals(treeSet.contains(probe), set.containsInt(probe));
+        }
+    }
+
+    @Test
+    public void testSmallSetsWithLayout() throws Exception {
+        for (int size = 0; size < 40; size++) {
+            int[] values = randomInts(size, 60);
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int value : values) {
+                expected.add(value);
+            }
+            IntArraySet set = new IntArraySet(values);
+            List<Integer> probes = new ArrayList<>();
+            for (int i = -35; i < 35; i++) {
+                probes.add(i);
+            }
+            assertSameNavigation(expected, set, probes);
+            assertSameNavigation(expected.descendingSet(), set.descendingSet(), probes);
+            assertSameNavigation(expected.subSet(-10, true, 10, true), set.subSet(-10, true, 10, true), probes);
+        }
+    }
+
+    @Test
+    public void testLargeLongSet() throws Exception {
+        long[] values = new long[LARGE_SIZE];
+        TreeSet<Long> treeSet = new TreeSet<>();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = RANDOM.nextLong() >> 20;
+            treeSet.add(values[i]);
+        }
+        LongArraySet set = new LongArraySet(values);
+        List<Long> probes = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            probes.add(RANDOM.nextBoolean() ? values[RANDOM.nextInt(values.length)] : RANDOM.nextLong() >> 20);
+        }
+        assertSameNavigation(treeSet, set, probes);
+        assertSameNavigation(treeSet.headSet(0L, false), set.headSet(0L, false), probes);
+        assertSameNavigation(treeSet.descendingSet().headSet(0L, true), set.descendingSet().headSet(0L, true), probes);
+    }
+
+    @Test
+    public void testAboveLayoutSize() throws Exception {
+        int[] ints = new int[IntArraySet.MAX_LAYOUT_SIZE + 1000];
+        TreeSet<Integer> intTreeSet = new TreeSet<>();
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = 3 * (i - ints.length / 2);
+            intTreeSet.add(ints[i]);
+        }
+        IntArraySet intSet = new IntArraySet(ints);
+        long[] longs = new long[LongArraySet.MAX_LAYOUT_SIZE + 1000];
+        TreeSet<Long> longTreeSet = new TreeSet<>();
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = (long) Integer.MAX_VALUE * (i - longs.length / 2);
+            longTreeSet.add(longs[i]);
+        }
+        LongArraySet longSet = new LongArraySet(longs);
+        List<Integer> intProbes = new ArrayList<>();
+        List<Long> longProbes = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            intProbes.add(RANDOM.nextInt(3 * ints.length + 2) - 3 * ints.length / 2 - 1);
+            longProbes.add(longs[RANDOM.nextInt(longs.length)] + RANDOM.nextInt(3) - 1);
+        }
+        assertSameNavigation(intTreeSet, intSet, intProbes);
+        assertSameNavigation(intTreeSet.descendingSet(), intSet.descendingSet(), intProbes);
+        assertSameNavigation(longTreeSet, longSet, longProbes);
+        assertSameNavigation(longTreeSet.descendingSet(), longSet.descendingSet(), longProbes);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        IntArraySet set = new IntArraySet();
+        assertEquals(0, set.size());
+        assertNull(set.floor(1));
+        assertEquals(7, set.floorInt(1, 7));
+        assertFalse(set.iterator().hasNext());
+        assertEquals(0, new LongArraySet(Collections.emptyList()).size());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testFirstOfEmpty() throws Exception {
+        new LongArraySet().firstLong();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPollFirst() throws Exception {
+        new IntArraySet(1, 2, 3).pollFirst();
+    }
+}
@@ -0,0 +1,258 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Merges two sorted ranges of arrays without duplicates, which are ordered by the same comparator,
+ * keeping elements, which are present only in the first range, only in the second one
+ * or in both of them. Ranges are merged linearly; if one of them is much smaller, every its
+ * element is found in the larger one by galloping (exponential) search instead. Large inputs
+ * are split by value ranges into independent parts, which are merged in {@link ForkJoinPool}.
+ *
+ * @author Daniyar Itegulov
+ */
+class SetMerger<T> {
+    static final int ONLY_FIRST = 1;
+    static final int ONLY_SECOND = 2;
+    static final int BOTH = 4;
+
+    static final int UNION = ONLY_FIRST | ONLY_SECOND | BOTH;
+    static final int INTERSECTION = BOTH;
+    static final int DIFFERENCE = ONLY_FIRST;
+    static final int SYMMETRIC_DIFFERENCE = ONLY_FIRST | ONLY_SECOND;
+
+    private static final int GALLOP_RATIO = 16;
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int PARTS_PER_THREAD = 4;
+
+    private final T[] first;
+    private final int firstFrom;
+    private final int firstTo;
+    private final T[] second;
+    private final int secondFrom;
+    private final int secondTo;
+    private final Comparator<? super T> comparator;
+    private final int mode;
+
+    @SuppressWarnings("unchecked")
+    SetMerger(Object[] first, int firstFrom, int firstTo, Object[] second, int secondFrom, int secondTo,
+              Comparator<? super T> comparator, int mode) {
+        this.first = (T[]) first;
+        this.firstFrom = firstFrom;
+        this.firstTo = firstTo;
+        this.second = (T[]) second;
+        this.secondFrom = secondFrom;
+        this.secondTo = secondTo;
+        this.comparator = comparator;
+        this.mode = mode;
+    }
+
+    /**
+     * @return sorted array of elements, which match the mode of this merger
+     */
+    Object[] merge() {
+        int size = firstTo - firstFrom + secondTo - secondFrom;
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (size < PARALLEL_THRESHOLD || parallelism < 2) {
+            return trim(mergeRange(firstFrom, firstTo, secondFrom, secondTo));
+        }
+        List<Part> parts = split(parallelism * PARTS_PER_THREAD);
+        ForkJoinPool.commonPool().invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(parts);
+                return null;
+            }
+        });
+        int total = 0;
+        for (Part part : parts) {
+            total += part.result.size;
+        }
+        Object[] result = new Object[total];
+        int offset = 0;
+        for (Part part : parts) {
+            System.arraycopy(part.result.elements, 0, result, offset, part.result.size);
+            offset += part.result.size;
+        }
+        return result;
+    }
+
+    /**
+     * Splits both ranges into {@code count} pairs of ranges, so that all elements of
+     * each pair are less than all elements of the next one. Pivots are taken from the
+     * larger range at equal intervals.
+     */
+    private List<Part> split(int count) {
+        boolean firstIsLarger = firstTo - firstFrom >= secondTo - secondFrom;
+        T[] larger = firstIsLarger ? first : second;
+        T[] smaller = firstIsLarger ? second : first;
+        int largerBegin = firstIsLarger ? firstFrom : secondFrom;
+        int largerEnd = firstIsLarger ? firstTo : secondTo;
+        int smallerEnd = firstIsLarger ? secondTo : firstTo;
+        List<Part> parts = new ArrayList<>(count);
+        int largerFrom = largerBegin;
+        int smallerFrom = firstIsLarger ? secondFrom : firstFrom;
+        for (int i = 1; i <= count; i++) {
+            int largerTo = largerBegin + (int) ((long) (largerEnd - largerBegin) * i / count);
+            int smallerTo = i == count ? smallerEnd
+                    : lowerBound(smaller, smallerFrom, smallerEnd, larger[largerTo]);
+            if (firstIsLarger) {
+                parts.add(new Part(largerFrom, largerTo, smallerFrom, smallerTo));
+            } else {
+                parts.add(new Part(smallerFrom, smallerTo, largerFrom, largerTo));
+            }
+            largerFrom = largerTo;
+            smallerFrom = smallerTo;
+        }
+        return parts;
+    }
+
+    private Buffer mergeRange(int firstFrom, int firstTo, int secondFrom, int secondTo) {
+        int firstSize = firstTo - firstFrom;
+        int secondSize = secondTo - secondFrom;
+        Buffer buffer = new Buffer((mode & ONLY_SECOND) != 0 ? firstSize + secondSize
+                : (mode & ONLY_FIRST) != 0 ? firstSize : Math.min(firstSize, secondSize));
+        if (firstSize >= GALLOP_RATIO * secondSize || secondSize >= GALLOP_RATIO * firstSize) {
+            gallopingMerge(buffer, firstFrom, firstTo, secondFrom, secondTo);
+        } else {
+            linearMerge(buffer, firstFrom, firstTo, secondFrom, secondTo);
+        }
+        return buffer;
+    }
+
+    private void linearMerge(Buffer buffer, int i, int firstTo, int j, int secondTo) {
+        while (i < firstTo && j < secondTo) {
+            T a = first[i];
+            T b = second[j];
+            int cmp = comparator.compare(a, b);
+            if (cmp < 0) {
+                buffer.addIf(a, mode & ONLY_FIRST);
+                i++;
+            } else if (cmp > 0) {
+                buffer.addIf(b, mode & ONLY_SECOND);
+                j++;
+            } else {
+                buffer.addIf(a, mode & BOTH);
+                i++;
+                j++;
+            }
+        }
+        buffer.addAllIf(first, i, firstTo, mode & ONLY_FIRST);
+        buffer.addAllIf(second, j, secondTo, mode & ONLY_SECOND);
+    }
+
+    private void gallopingMerge(Buffer buffer, int i, int firstTo, int j, int secondTo) {
+        if (firstTo - i < secondTo - j) {
+            for (; i < firstTo; i++) {
+                T a = first[i];
+                int next = gallop(second, j, secondTo, a);
+                buffer.addAllIf(second, j, next, mode & ONLY_SECOND);
+                if (next < secondTo && comparator.compare(second[next], a) == 0) {
+                    buffer.addIf(a, mode & BOTH);
+                    next++;
+                } else {
+                    buffer.addIf(a, mode & ONLY_FIRST);
+                }
+                j = next;
+            }
+        } else {
+            for (; j < secondTo; j++) {
+                T b = second[j];
+                int next = gallop(first, i, firstTo, b);
+                buffer.addAllIf(first, i, next, mode & ONLY_FIRST);
+                if (next < firstTo && comparator.compare(first[next], b) == 0) {
+                    buffer.addIf(first[next], mode & BOTH);
+                    next++;
+                } else {
+                    buffer.addIf(b, mode & ONLY_SECOND);
+                }
+                i = next;
+            }
+        }
+        buffer.addAllIf(first, i, firstTo, mode & ONLY_FIRST);
+        buffer.addAllIf(second, j, secondTo, mode & ONLY_SECOND);
+    }
+
+    /**
+     * @return index of the first element in {@code [from, to)}, which is not less than {@code key}.
+     * Checks elements at distances 1, 2, 4, ... from {@code from} before binary search, so it
+     * takes O(log d), where d is distance to the answer.
+     */
+    private int gallop(T[] array, int from, int to, T key) {
+        int step = 1;
+        int lo = from;
+        int hi = from;
+        while (hi < to && comparator.compare(array[hi], key) < 0) {
+            lo = hi + 1;
+            hi = from + step;
+            step *= 2;
+        }
+        return lowerBound(array, lo, Math.min(hi, to), key);
+    }
+
+    private int lowerBound(T[] array, int from, int to, T key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (comparator.compare(array[mid], key) < 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    private static Object[] trim(Buffer buffer) {
+        return buffer.size == buffer.elements.length ? buffer.elements : Arrays.copyOf(buffer.elements, buffer.size);
+    }
+
+    private static class Buffer {
+        private final Object[] elements;
+        private int size = 0;
+
+        private Buffer(int capacity) {
+            elements = new Object[capacity];
+        }
+
+        private void addIf(Object element, int condition) {
+            if (condition != 0) {
+                elements[size++] = element;
+            }
+        }
+
+        private void addAllIf(Object[] array, int from, int to, int condition) {
+            if (condition != 0) {
+                System.arraycopy(array, from, elements, size, to - from);
+                size += to - from;
+            }
+        }
+    }
+
+    private class Part extends RecursiveTask<Void> {
+        private static final long serialVersionUID = -2871304671965417342L;
+
+        private final int firstFrom;
+        private final int firstTo;
+        private final int secondFrom;
+        private final int secondTo;
+        private Buffer result;
+
+        private Part(int firstFrom, int firstTo, int secondFrom, int secondTo) {
+            this.firstFrom = firstFrom;
+            this.firstTo = firstTo;
+            this.secondFrom = secondFrom;
+            this.secondTo = secondTo;
+        }
+
+        @Override
+        protected Void compute() {
+            result = mergeRange(firstFrom, firstTo, secondFrom, secondTo);
+            return null;
+        }
+    }
+}
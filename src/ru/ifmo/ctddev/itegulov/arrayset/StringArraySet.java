@@ -0,0 +1,522 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable {@link java.util.NavigableSet} of strings in their natural order, which keeps
+ * elements front-coded in a single {@code char[]} arena instead of separate {@link String}
+ * objects. Elements are split into blocks of {@link #BLOCK_SIZE}; the first element of
+ * every block is stored completely, and each next one is stored as the length of the
+ * prefix it shares with the previous element plus the rest of its chars. For keys with
+ * long common prefixes (URLs, paths) it takes several times less memory than
+ * {@link ArraySet} of strings.
+ * <p>
+ * Lookups binary search over block heads and then scan at most one block, comparing
+ * the key with front-coded chars in place, so they allocate nothing. {@link #get} and
+ * iteration decode elements into new strings.
+ * Besides usual {@code NavigableSet} methods it provides {@link #prefixSet}, a view of
+ * all elements starting with the given prefix. Every view shares arena with the original
+ * set and is created in O(log n).
+ *
+ * @author Daniyar Itegulov
+ */
+public class StringArraySet extends AbstractSet<String> implements NavigableSet<String> {
+    static final int BLOCK_SIZE = 16;
+    private static final int BLOCK_SHIFT = 4;
+
+    private final char[] arena;
+    private final int[] blocks;
+    private final int from;
+    private final int to;
+    private final boolean descending;
+
+    public StringArraySet() {
+        this(Collections.emptyList());
+    }
+
+    public StringArraySet(Collection<? extends String> collection) {
+        String[] sorted = collection.toArray(new String[collection.size()]);
+        // order is checked rather than taken from comparator(), which is null for descending views of some sets
+        boolean isSorted = true;
+        for (int i = 1; i < sorted.length && isSorted; i++) {
+            isSorted = sorted[i - 1].compareTo(sorted[i]) <= 0;
+        }
+        if (!isSorted) {
+            Arrays.sort(sorted);
+        }
+        int size = 0;
+        for (String element : sorted) {
+            if (size == 0 || !sorted[size - 1].equals(element)) {
+                sorted[size++] = Objects.requireNonNull(element);
+            }
+        }
+        Encoder encoder = new Encoder(size);
+        for (int i = 0; i < size; i++) {
+            encoder.add(sorted[i]);
+        }
+        this.arena = encoder.arena.length == encoder.length ? encoder.arena : Arrays.copyOf(encoder.arena, encoder.length);
+        this.blocks = encoder.blocks;
+        this.from = 0;
+        this.to = size;
+        this.descending = false;
+    }
+
+    private StringArraySet(char[] arena, int[] blocks, int from, int to, boolean descending) {
+        this.arena = arena;
+        this.blocks = blocks;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+    }
+
+    /**
+     * Lengths are written as one char if they are less than {@code 2^15}
+     * and as two chars otherwise.
+     */
+    private static class Encoder {
+        private final int[] blocks;
+        private char[] arena = new char[64];
+        private int length = 0;
+        private int count = 0;
+        private String previous;
+
+        private Encoder(int size) {
+            blocks = new int[(size + BLOCK_SIZE - 1) >> BLOCK_SHIFT];
+        }
+
+        private void add(String element) {
+            if ((count & (BLOCK_SIZE - 1)) == 0) {
+                blocks[count >> BLOCK_SHIFT] = length;
+                writeLength(element.length());
+                writeChars(element, 0);
+            } else {
+                int shared = 0;
+                int limit = Math.min(previous.length(), element.length());
+                while (shared < limit && previous.charAt(shared) == element.charAt(shared)) {
+                    shared++;
+                }
+                writeLength(shared);
+                writeLength(element.length() - shared);
+                writeChars(element, shared);
+            }
+            previous = element;
+            count++;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, length + extra));
+            }
+        }
+
+        private void writeLength(int value) {
+            ensureCapacity(2);
+            if (value < 0x8000) {
+                arena[length++] = (char) value;
+            } else {
+                arena[length++] = (char) (0x8000 | (value >>> 15));
+                arena[length++] = (char) (value & 0x7FFF);
+            }
+        }
+
+        private void writeChars(String element, int begin) {
+            ensureCapacity(element.length() - begin);
+            element.getChars(begin, element.length(), arena, length);
+            length += element.length() - begin;
+        }
+    }
+
+    /**
+     * Decodes consecutive elements of one block into reusable buffer.
+     */
+    private class Cursor {
+        private char[] buffer = new char[16];
+        private int length;
+        private int position;
+        private int index;
+
+        private int readLength() {
+            int value = arena[position++];
+            if (value >= 0x8000) {
+                value = ((value & 0x7FFF) << 15) | arena[position++];
+            }
+            return value;
+        }
+
+        private void setLength(int newLength) {
+            if (newLength > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, newLength));
+            }
+            length = newLength;
+        }
+
+        /**
+         * Moves to the first element of the given block.
+         */
+        private void seekBlock(int block) {
+            position = blocks[block];
+            index = block << BLOCK_SHIFT;
+            setLength(readLength());
+            System.arraycopy(arena, position, buffer, 0, length);
+            position += length;
+        }
+
+        /**
+         * Moves to the next element of the same block.
+         */
+        private void next() {
+            int shared = readLength();
+            int suffix = readLength();
+            setLength(shared + suffix);
+            System.arraycopy(arena, position, buffer, shared, suffix);
+            position += suffix;
+            index++;
+        }
+
+        private void seek(int index) {
+            seekBlock(index >> BLOCK_SHIFT);
+            while (this.index < index) {
+                next();
+            }
+        }
+
+        private String current() {
+            return new String(buffer, 0, length);
+        }
+    }
+
+    /**
+     * Compares {@code chars[offset, offset + length)} with {@code key}. If {@code prefixOnly},
+     * only first {@code key.length()} chars are compared, so all strings starting with
+     * {@code key} are equal to it.
+     */
+    private static int compare(char[] chars, int offset, int length, String key, boolean prefixOnly) {
+        if (prefixOnly) {
+            length = Math.min(length, key.length());
+        }
+        int limit = Math.min(length, key.length());
+        for (int i = 0; i < limit; i++) {
+            char c = chars[offset + i];
+            char k = key.charAt(i);
+            if (c != k) {
+                return c - k;
+            }
+        }
+        return length - key.length();
+    }
+
+    private int lengthAt(int position) {
+        int value = arena[position];
+        if (value >= 0x8000) {
+            value = ((value & 0x7FFF) << 15) | arena[position + 1];
+        }
+        return value;
+    }
+
+    private static int width(int length) {
+        return length < 0x8000 ? 1 : 2;
+    }
+
+    private int compareHead(int block, String key, boolean prefixOnly) {
+        int position = blocks[block];
+        int length = lengthAt(position);
+        return compare(arena, position + width(length), length, key, prefixOnly);
+    }
+
+    /**
+     * @return index of the first element (in the whole ascending set), which is greater than
+     * {@code key} if {@code strict} or greater than or equal to it otherwise, clamped to {@code [from, to]}
+     */
+    private int bound(String key, boolean strict, boolean prefixOnly) {
+        int result = search(key, strict, prefixOnly);
+        return result >= 0 ? result : -result - 1;
+    }
+
+    /**
+     * Finds the same index as {@link #bound}, but also tells, whether the element there is equal to {@code key}.
+     *
+     * @return the index if the element at it is equal to {@code key}, {@code -(index) - 1} otherwise
+     */
+    private int search(String key, boolean strict, boolean prefixOnly) {
+        if (from == to) {
+            return -from - 1;
+        }
+        int lowBlock = from >> BLOCK_SHIFT;
+        int highBlock = (to - 1) >> BLOCK_SHIFT;
+        // find the last block, which head is not after the key (before it, if elements, starting with
+        // the key, are searched), so the scanned block holds the bound or the bound is at its end
+        int block = lowBlock;
+        while (lowBlock <= highBlock) {
+            int mid = (lowBlock + highBlock) >>> 1;
+            int cmp = compareHead(mid, key, prefixOnly);
+            if (prefixOnly && !strict ? cmp < 0 : cmp <= 0) {
+                block = mid;
+                lowBlock = mid + 1;
+            } else {
+                highBlock = mid - 1;
+            }
+        }
+        int end = Math.min(to, (block + 1) << BLOCK_SHIFT);
+        int index = block << BLOCK_SHIFT;
+        int position = blocks[block];
+        int shared = 0;
+        int suffix = lengthAt(position);
+        position += width(suffix);
+        // number of first chars of the current element, which are equal to chars of the key
+        int matched = 0;
+        int cmp = 0;
+        while (true) {
+            if (shared < matched) {
+                // the previous element is equal to the key at char shared, so this one is greater
+                matched = shared;
+                cmp = 1;
+            } else if (shared == matched) {
+                int length = shared + suffix;
+                int limit = Math.min(length, key.length());
+                while (matched < limit && arena[position + matched - shared] == key.charAt(matched)) {
+                    matched++;
+                }
+                cmp = matched < limit
+                        ? arena[position + matched - shared] - key.charAt(matched)
+                        : (prefixOnly ? limit : length) - key.length();
+            }
+            // otherwise this element differs from the key at the same char as the previous one
+            if (index >= from && (strict ? cmp > 0 : cmp >= 0)) {
+                return cmp == 0 ? index : -index - 1;
+            }
+            if (index + 1 >= end) {
+                return -end - 1;
+            }
+            position += suffix;
+            shared = lengthAt(position);
+            position += width(shared);
+            suffix = lengthAt(position);
+            position += width(suffix);
+            index++;
+        }
+    }
+
+    private int ascendingLower(String key) {
+        return bound(key, false, false) - 1;
+    }
+
+    private int ascendingFloor(String key) {
+        return bound(key, true, false) - 1;
+    }
+
+    private int ascendingCeiling(String key) {
+        return bound(key, false, false);
+    }
+
+    private int ascendingHigher(String key) {
+        return bound(key, true, false);
+    }
+
+    private boolean inRange(int index) {
+        return index >= from && index < to;
+    }
+
+    private String elementOrNull(int index) {
+        return inRange(index) ? elementAt(index) : null;
+    }
+
+    private String elementAt(int index) {
+        Cursor cursor = new Cursor();
+        cursor.seek(index);
+        return cursor.current();
+    }
+
+    /**
+     * Returns the element at the specified position in this set.
+     *
+     * @param index index of the element in this set's order
+     * @return the element at the specified position
+     * @throws IndexOutOfBoundsException if {@code index} is out of range
+     */
+    public String get(int index) {
+        if (index < 0 || index >= to - from) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+        }
+        return elementAt(descending ? to - 1 - index : from + index);
+    }
+
+    /**
+     * Returns a view of elements of this set, which start with given prefix.
+     *
+     * @param prefix prefix of elements
+     * @return view of this set, containing elements starting with {@code prefix}
+     */
+    public StringArraySet prefixSet(String prefix) {
+        int newFrom = bound(prefix, false, true);
+        int newTo = bound(prefix, true, true);
+        return new StringArraySet(arena, blocks, newFrom, newTo, descending);
+    }
+
+    @Override
+    public String lower(String s) {
+        return elementOrNull(descending ? ascendingHigher(s) : ascendingLower(s));
+    }
+
+    @Override
+    public String floor(String s) {
+        return elementOrNull(descending ? ascendingCeiling(s) : ascendingFloor(s));
+    }
+
+    @Override
+    public String ceiling(String s) {
+        return elementOrNull(descending ? ascendingFloor(s) : ascendingCeiling(s));
+    }
+
+    @Override
+    public String higher(String s) {
+        return elementOrNull(descending ? ascendingLower(s) : ascendingHigher(s));
+    }
+
+    @Override
+    public String pollFirst() {
+        throw new UnsupportedOperationException("pollFirst");
+    }
+
+    @Override
+    public String pollLast() {
+        throw new UnsupportedOperationException("pollLast");
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return descending ? descendingIterator(from, to) : ascendingIterator(from, to);
+    }
+
+    private Iterator<String> ascendingIterator(int from, int to) {
+        return new Iterator<String>() {
+            private final Cursor cursor = new Cursor();
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public String next() {
+                if (index >= to) {
+                    throw new NoSuchElementException();
+                }
+                if (index == from || (index & (BLOCK_SIZE - 1)) == 0) {
+                    cursor.seek(index);
+                } else {
+                    cursor.next();
+                }
+                index++;
+                return cursor.current();
+            }
+        };
+    }
+
+    private Iterator<String> descendingIterator(int from, int to) {
+        return new Iterator<String>() {
+            private int index = to - 1;
+
+            @Override
+            public boolean hasNext() {
+                return index >= from;
+            }
+
+            @Override
+            public String next() {
+                if (index < from) {
+                    throw new NoSuchElementException();
+                }
+                return elementAt(index--);
+            }
+        };
+    }
+
+    @Override
+    public NavigableSet<String> descendingSet() {
+        return new StringArraySet(arena, blocks, from, to, !descending);
+    }
+
+    @Override
+    public Iterator<String> descendingIterator() {
+        return descending ? ascendingIterator(from, to) : descendingIterator(from, to);
+    }
+
+    @Override
+    public NavigableSet<String> subSet(String fromElement, boolean fromInclusive, String toElement, boolean toInclusive) {
+        int cmp = fromElement.compareTo(toElement);
+        if (descending ? cmp < 0 : cmp > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return headSet(toElement, toInclusive).tailSet(fromElement, fromInclusive);
+    }
+
+    @Override
+    public NavigableSet<String> headSet(String toElement, boolean inclusive) {
+        if (descending) {
+            int newFrom = inclusive ? ascendingCeiling(toElement) : ascendingHigher(toElement);
+            return new StringArraySet(arena, blocks, newFrom, to, true);
+        }
+        int newTo = inclusive ? ascendingHigher(toElement) : ascendingCeiling(toElement);
+        return new StringArraySet(arena, blocks, from, newTo, false);
+    }
+
+    @Override
+    public NavigableSet<String> tailSet(String fromElement, boolean inclusive) {
+        if (descending) {
+            int newTo = inclusive ? ascendingHigher(fromElement) : ascendingCeiling(fromElement);
+            return new StringArraySet(arena, blocks, from, newTo, true);
+        }
+        int newFrom = inclusive ? ascendingCeiling(fromElement) : ascendingHigher(fromElement);
+        return new StringArraySet(arena, blocks, newFrom, to, false);
+    }
+
+    @Override
+    public Comparator<? super String> comparator() {
+        return descending ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public SortedSet<String> subSet(String fromElement, String toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<String> headSet(String toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<String> tailSet(String fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public String first() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return elementAt(descending ? to - 1 : from);
+    }
+
+    @Override
+    public String last() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return elementAt(descending ? from : to - 1);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        return search((String) o, false, false) >= 0;
+    }
+}
@@ -0,0 +1,141 @@
+package ru.ifmo.ctddev.itegulov.arrayset;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static ru.ifmo.ctddev.itegulov.arrayset.NavigationAssert.assertSameNavigation;
+
+public class StringArraySetTest {
+    private static final Random RANDOM = new Random(NavigationAssert.SEED);
+
+    private static String randomPath() {
+        StringBuilder builder = new StringBuilder("http://example.com");
+        int depth = RANDOM.nextInt(4);
+        for (int i = 0; i < depth; i++) {
+            builder.append('/').append((char) ('a' + RANDOM.nextInt(3)));
+            if (RANDOM.nextInt(5) == 0) {
+                builder.append(RANDOM.nextInt(100));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static List<String> randomPaths(int count) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(randomPath());
+        }
+        return result;
+    }
+
+    @Test
+    public void testNavigation() throws Exception {
+        List<String> values = randomPaths(1000);
+        TreeSet<String> treeSet = new TreeSet<>(values);
+        StringArraySet set = new StringArraySet(values);
+        List<String> probes = randomPaths(500);
+        probes.add("");
+        probes.add("http");
+        probes.add("zzz");
+        assertSameNavigation(treeSet, set, probes);
+        assertSameNavigation(treeSet.descendingSet(), set.descendingSet(), probes);
+        assertSameNavigation(treeSet.headSet("http://example.com/b", true), set.headSet("http://example.com/b", true), probes);
+        assertSameNavigation(treeSet.tailSet("http://example.com/a/c", false), set.tailSet("http://example.com/a/c", false), probes);
+        assertSameNavigation(treeSet.descendingSet().subSet("http://example.com/c", true, "http://example.com/a/b", false),
+                set.descendingSet().subSet("http://example.com/c", true, "http://example.com/a/b", false), probes);
+        for (int i = 0; i < set.size(); i += 7) {
+            assertEquals(new ArrayList<>(treeSet).get(i), set.get(i));
+        }
+        assertEquals(treeSet, set);
+        assertEquals(treeSet.hashCode(), set.hashCode());
+    }
+
+    @Test
+    public void testPrefixSet() throws Exception {
+        List<String> values = randomPaths(1000);
+        TreeSet<String> treeSet = new TreeSet<>(values);
+        StringArraySet set = new StringArraySet(values);
+        for (String prefix : Arrays.asList("", "h", "http://example.com/a", "http://example.com/b/",
+                "http://example.com/c/c/c", "http://example.com/a1", "x")) {
+            List<String> expected = treeSet.stream().filter(s -> s.startsWith(prefix)).collect(Collectors.toList());
+            assertEquals(expected, new ArrayList<>(set.prefixSet(prefix)));
+            Collections.reverse(expected);
+            assertEquals(expected, new ArrayList<>(((StringArraySet) set.descendingSet()).prefixSet(prefix)));
+        }
+        StringArraySet view = (StringArraySet) set.tailSet("http://example.com/b", true);
+        assertEquals(treeSet.tailSet("http://example.com/b", true).stream().filter(s -> s.startsWith("http://example.com/"))
+                .collect(Collectors.toList()), new ArrayList<>(view.prefixSet("http://example.com/")));
+    }
+
+    @Test
+    public void testLongAndUnusualStrings() throws Exception {
+        char[] chars = new char[40000];
+        Arrays.fill(chars, 'a');
+        String longString = new String(chars);
+        List<String> values = Arrays.asList("", "\uffff", "a\uffff", longString, longString + "b", "ab", "a");
+        TreeSet<String> treeSet = new TreeSet<>(values);
+        StringArraySet set = new StringArraySet(values);
+        assertSameNavigation(treeSet, set, Arrays.asList("", "a", "aa", longString, longString + "a", "\uffff\uffff"));
+        assertEquals(Arrays.asList("a\uffff"), new ArrayList<>(set.prefixSet("a\uffff")));
+    }
+
+    @Test
+    public void testDenseSharedPrefixes() throws Exception {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = RANDOM.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                builder.append((char) ('a' + RANDOM.nextInt(3)));
+            }
+            values.add(builder.toString());
+        }
+        TreeSet<String> treeSet = new TreeSet<>(values);
+        StringArraySet set = new StringArraySet(values);
+        List<String> probes = new ArrayList<>();
+        for (String value : treeSet) {
+            probes.add(value);
+            probes.add(value + "a");
+            probes.add(value + "d");
+            if (!value.isEmpty()) {
+                probes.add(value.substring(0, value.length() - 1));
+            }
+        }
+        probes.add("`");
+        assertSameNavigation(treeSet, set, probes);
+        assertSameNavigation(treeSet.subSet("ab", true, "cb", true), set.subSet("ab", true, "cb", true), probes);
+        assertSameNavigation(treeSet.descendingSet().headSet("bc", false), set.descendingSet().headSet("bc", false), probes);
+        for (String prefix : Arrays.asList("a", "ab", "bca", "cccccc", "ccccccc")) {
+            assertEquals(treeSet.stream().filter(s -> s.startsWith(prefix)).collect(Collectors.toList()),
+                    new ArrayList<>(set.prefixSet(prefix)));
+        }
+    }
+
+    @Test
+    public void testCreationFromDescendingView() throws Exception {
+        List<String> values = randomPaths(300);
+        TreeSet<String> treeSet = new TreeSet<>(values);
+        StringArraySet set = new StringArraySet(new ArraySet<>(values).descendingSet());
+        assertSameNavigation(treeSet, set, values);
+        assertSameNavigation(treeSet, new StringArraySet(treeSet.descendingSet()), values);
+        assertSameNavigation(treeSet, new StringArraySet(set.descendingSet()), values);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        StringArraySet set = new StringArraySet();
+        assertEquals(0, set.size());
+        assertNull(set.floor("a"));
+        assertFalse(set.contains("a"));
+        assertEquals(0, set.prefixSet("a").size());
+        assertFalse(set.iterator().hasNext());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() throws Exception {
+        new StringArraySet(Arrays.asList("a", "b")).get(2);
+    }
+}
@@ -1,31 +1,82 @@
 package ru.ifmo.ctddev.itegulov.concurrent;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
  * Used for cancellable asynchronous computation. This class provides way
  * to start and cancel a computation, query to see if the computation is
  * complete, and retrieve the result of the computation.  The result can
- * only be retrieved when the computation has completed; the {@link #execute}
+ * only be retrieved when the computation has completed; the {@link #waitForDone}
  * method will block if the computation has not yet completed.  Once
  * the computation has completed, the computation cannot be cancelled.
  * <p>
+ * Instead of blocking, one can register a callback with {@link #whenDone}
+ * or derive a dependent task with {@link #thenApply}.
+ * <p>
  * A {@code FutureTask} can only be used to wrap and execute
  * {@link java.util.function.Function}.
+ * <p>
+ * Status is changed with compare-and-set, threads, waiting for the task, and
+ * callbacks are kept in a lock-free stack, which is detached and processed
+ * once the task is done. Waiting threads are parked with {@link LockSupport}.
  *
  * @author Daniyar Itegulov
  */
 public class FutureTask<R, T> {
     private static final int STATUS_PENDING = 0;
     private static final int STATUS_RUNNING = 1;
-    private static final int STATUS_READY = 2;
-    private static final int STATUS_ABORTED = 3;
+    /**
+     * Running task is being cancelled: {@link #cancel} interrupts the runner, which
+     * doesn't leave {@link #execute} until the status becomes {@link #STATUS_ABORTED}.
+     */
+    private static final int STATUS_INTERRUPTING = 2;
+    private static final int STATUS_READY = 3;
+    private static final int STATUS_ABORTED = 4;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<FutureTask> STATUS =
+            AtomicIntegerFieldUpdater.newUpdater(FutureTask.class, "status");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<FutureTask, Node> WAITERS =
+            AtomicReferenceFieldUpdater.newUpdater(FutureTask.class, Node.class, "waiters");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<FutureTask, Thread> RUNNER =
+            AtomicReferenceFieldUpdater.newUpdater(FutureTask.class, Thread.class, "runner");
+
+    /**
+     * Marks stack of waiters of a done task, nodes can't be pushed after it.
+     */
+    private static final Node DONE = new Node(null, null);
 
     private final Function<T, R> task;
     private final T argument;
+    /**
+     * Whether the task is created by {@link #thenApply} and is executed only by the task it depends on.
+     */
+    private final boolean isDependent;
     private volatile R result;
     private volatile int status = STATUS_PENDING;
     private volatile Thread runner = null;
+    private volatile Node waiters = null;
+
+    /**
+     * Node of the stack of waiters: either a parked thread or a callback.
+     */
+    private static class Node {
+        private volatile Thread thread;
+        private final Runnable callback;
+        private volatile Node next;
+
+        private Node(Thread thread, Runnable callback) {
+            this.thread = thread;
+            this.callback = callback;
+        }
+    }
 
     /**
      * Class constructor, which specify what task to execute and what
@@ -39,38 +90,53 @@ public class FutureTask<R, T> {
     public FutureTask(Function<T, R> task, T argument) {
         this.task = task;
         this.argument = argument;
+        this.isDependent = false;
+    }
+
+    private FutureTask(Function<T, R> task) {
+        this.task = task;
+        this.argument = null;
+        this.isDependent = true;
     }
 
     /**
-     * Waits if necessary for the computation to complete, and then
-     * saves it's result if not canceled. Throws all exceptions, which
-     * occurred in executed task higher.
+     * Executes the task, if it has been neither started nor cancelled yet,
+     * and saves it's result if not canceled meanwhile. Throws all exceptions and errors,
+     * which occurred in executed task higher, after the task is aborted. If the task is
+     * cancelled while running, this method returns only after the interrupt of the
+     * current thread, made by {@link #cancel}, so it can't hit the next task of this thread. Tasks, returned by {@link #thenApply},
+     * are executed only by the task they depend on, so for them this method does nothing.
      */
     public void execute() {
+        if (!isDependent) {
+            execute(argument);
+        }
+    }
+
+    private void execute(T argument) {
+        // runner is published before the task is claimed, so cancel of the running task always sees it
+        Thread current = Thread.currentThread();
+        if (!RUNNER.compareAndSet(this, null, current)) {
+            return;
+        }
+        if (!STATUS.compareAndSet(this, STATUS_PENDING, STATUS_RUNNING)) {
+            runner = null;
+            return;
+        }
         try {
-            synchronized (this) {
-                if (status != STATUS_PENDING) {
-                    return;
-                } else {
-                    status = STATUS_RUNNING;
-                    runner = Thread.currentThread();
-                }
+            result = task.apply(argument);
+            if (STATUS.compareAndSet(this, STATUS_RUNNING, STATUS_READY)) {
+                finish();
             }
-            R result = task.apply(argument);
-            synchronized (this) {
-                if (status == STATUS_RUNNING) {
-                    this.result = result;
-                    status = STATUS_READY;
-                    notifyAll();
-                }
-            }
-        } catch (RuntimeException e) {
-            status = STATUS_ABORTED;
-            synchronized (this) {
-                notifyAll();
+        } catch (Throwable e) {
+            if (STATUS.compareAndSet(this, STATUS_RUNNING, STATUS_ABORTED)) {
+                finish();
             }
             throw e;
         } finally {
+            while (status == STATUS_INTERRUPTING) {
+                Thread.yield();
+            }
             runner = null;
         }
     }
@@ -87,12 +153,89 @@ public class FutureTask<R, T> {
      * always return {@code false}.  Subsequent calls to {@link #isAborted}
      * will always return {@code true}.
      */
-    public synchronized void cancel() {
-        if (status != STATUS_READY) {
-            status = STATUS_ABORTED;
+    public void cancel() {
+        int current;
+        while ((current = status) == STATUS_PENDING || current == STATUS_RUNNING) {
+            if (current == STATUS_PENDING) {
+                if (STATUS.compareAndSet(this, STATUS_PENDING, STATUS_ABORTED)) {
+                    finish();
+                    return;
+                }
+            } else if (STATUS.compareAndSet(this, STATUS_RUNNING, STATUS_INTERRUPTING)) {
+                // runner waits in execute until the status is changed, so it is still running this task
+                try {
+                    runner.interrupt();
+                } finally {
+                    status = STATUS_ABORTED;
+                    finish();
+                }
+                return;
+            }
         }
-        if (runner != null) {
-            runner.interrupt();
+    }
+
+    /**
+     * Wakes up all waiting threads and runs all callbacks.
+     */
+    private void finish() {
+        Node node = WAITERS.getAndSet(this, DONE);
+        for (; node != null; node = node.next) {
+            if (node.callback != null) {
+                try {
+                    node.callback.run();
+                } catch (Throwable e) {
+                    Thread current = Thread.currentThread();
+                    current.getUncaughtExceptionHandler().uncaughtException(current, e);
+                }
+            } else {
+                Thread thread = node.thread;
+                if (thread != null) {
+                    node.thread = null;
+                    LockSupport.unpark(thread);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pushes node to the stack of waiters.
+     *
+     * @return {@code false} if the task is already done and node hasn't been pushed
+     */
+    private boolean push(Node node) {
+        Node head;
+        while ((head = waiters) != DONE) {
+            node.next = head;
+            if (WAITERS.compareAndSet(this, head, node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Unlinks node of a thread, which has stopped waiting, and all other such nodes.
+     */
+    private void removeWaiter(Node node) {
+        node.thread = null;
+        retry:
+        while (true) {
+            Node previous = null;
+            for (Node current = waiters, next; current != null && current != DONE; current = next) {
+                next = current.next;
+                if (current.thread != null || current.callback != null) {
+                    previous = current;
+                } else if (previous != null) {
+                    previous.next = next;
+                    if (previous.thread == null && previous.callback == null) {
+                        // previous has been removed concurrently
+                        continue retry;
+                    }
+                } else if (!WAITERS.compareAndSet(this, current, next)) {
+                    continue retry;
+                }
+            }
+            return;
         }
     }
 
@@ -103,7 +246,7 @@ public class FutureTask<R, T> {
      * @return result of executing task if it's available, {@code null}
      * otherwise
      */
-    public synchronized R getResult() {
+    public R getResult() {
         if (status == STATUS_READY) {
             return result;
         }
@@ -127,14 +270,97 @@ public class FutureTask<R, T> {
         return status == STATUS_ABORTED;
     }
 
+    private boolean isDone() {
+        return status >= STATUS_READY;
+    }
+
     /**
      * Wait for this future task to be done (ready or cancelled).
      *
      * @throws InterruptedException if this thread was interrupted
      */
-    public synchronized void waitForDone() throws InterruptedException {
-        while (!isReady() && !isAborted()) {
-            wait();
+    public void waitForDone() throws InterruptedException {
+        waitForDone(false, 0);
+    }
+
+    /**
+     * Wait at most given time for this future task to be done (ready or cancelled).
+     *
+     * @param timeout maximum time to wait
+     * @param unit time unit of {@code timeout}
+     * @return {@code true} if task is done, {@code false} if the waiting time elapsed
+     * @throws InterruptedException if this thread was interrupted
+     */
+    public boolean waitForDone(long timeout, TimeUnit unit) throws InterruptedException {
+        return waitForDone(true, unit.toNanos(timeout));
+    }
+
+    private boolean waitForDone(boolean timed, long nanos) throws InterruptedException {
+        if (isDone()) {
+            return true;
+        }
+        long deadline = timed ? System.nanoTime() + nanos : 0;
+        Node node = new Node(Thread.currentThread(), null);
+        if (!push(node)) {
+            return true;
+        }
+        while (!isDone()) {
+            if (Thread.interrupted()) {
+                removeWaiter(node);
+                throw new InterruptedException();
+            }
+            if (timed) {
+                nanos = deadline - System.nanoTime();
+                if (nanos <= 0) {
+                    removeWaiter(node);
+                    return isDone();
+                }
+                LockSupport.parkNanos(this, nanos);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Registers callback, which will be called once this task is done (ready or
+     * cancelled). Callback is called by the thread, which completes or cancels the
+     * task, or immediately by the current thread if the task is already done.
+     * Exceptions, thrown by the callback, are passed to the uncaught exception
+     * handler of the calling thread.
+     *
+     * @param callback callback, which accepts this task
+     */
+    public void whenDone(Consumer<? super FutureTask<R, T>> callback) {
+        Node node = new Node(null, () -> callback.accept(this));
+        if (!push(node)) {
+            node.callback.run();
         }
     }
+
+    /**
+     * Returns task, which applies given function to the result of this task, once it's
+     * ready. Function is called like callbacks of {@link #whenDone}. If this task is aborted,
+     * returned task is aborted too, but cancellation of returned task doesn't affect this one.
+     *
+     * @param function function to apply to the result
+     * @param <U> return type of {@code function}
+     * @return dependent future task
+     */
+    public <U> FutureTask<U, R> thenApply(Function<R, U> function) {
+        FutureTask<U, R> dependent = new FutureTask<>(function);
+        whenDone(done -> {
+            if (done.isReady()) {
+                try {
+                    dependent.execute(done.getResult());
+                } catch (Throwable ignored) {
+                    // dependent is aborted
+                }
+            } else {
+                dependent.cancel();
+            }
+        });
+        return dependent;
+    }
 }
@@ -0,0 +1,299 @@
+package ru.ifmo.ctddev.itegulov.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FutureTaskTest {
+    private static Thread executeAsync(FutureTask<?, ?> task) {
+        Thread thread = new Thread(() -> {
+            try {
+                task.execute();
+            } catch (RuntimeException ignored) {
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Test(timeout = 60000)
+    public void testExecute() throws Exception {
+        FutureTask<Integer, Integer> task = new FutureTask<>(x -> x * 2, 21);
+        assertFalse(task.isReady());
+        assertFalse(task.isAborted());
+        assertNull(task.getResult());
+        task.execute();
+        assertTrue(task.isReady());
+        assertEquals(Integer.valueOf(42), task.getResult());
+        task.cancel();
+        assertTrue(task.isReady());
+        assertFalse(task.isAborted());
+    }
+
+    @Test(timeout = 60000)
+    public void testFailure() throws Exception {
+        FutureTask<Integer, Integer> task = new FutureTask<>(x -> {
+            throw new IllegalArgumentException();
+        }, 0);
+        try {
+            task.execute();
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        assertTrue(task.isAborted());
+        assertNull(task.getResult());
+        assertTrue(task.waitForDone(0, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 60000)
+    public void testTimedWait() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        FutureTask<Integer, Integer> task = new FutureTask<>(x -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return x;
+        }, 7);
+        Thread thread = executeAsync(task);
+        long start = System.nanoTime();
+        assertFalse(task.waitForDone(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertFalse(task.waitForDone(0, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(task.waitForDone(1, TimeUnit.MINUTES));
+        assertEquals(Integer.valueOf(7), task.getResult());
+        thread.join();
+    }
+
+    @Test(timeout = 60000)
+    public void testInterruptedWait() throws Exception {
+        FutureTask<Integer, Integer> task = new FutureTask<>(x -> x, 0);
+        Thread.currentThread().interrupt();
+        try {
+            task.waitForDone();
+            fail();
+        } catch (InterruptedException ignored) {
+        }
+        task.execute();
+        task.waitForDone();
+    }
+
+    @Test(timeout = 60000)
+    public void testManyWaiters() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        FutureTask<Integer, Integer> task = new FutureTask<>(x -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return x;
+        }, 1);
+        AtomicInteger woken = new AtomicInteger();
+        List<Thread> waiters = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            boolean timed = i % 2 == 0;
+            Thread waiter = new Thread(() -> {
+                try {
+                    if (timed) {
+                        while (!task.waitForDone(1, TimeUnit.MILLISECONDS)) {
+                            Thread.yield();
+                        }
+                    } else {
+                        task.waitForDone();
+                    }
+                    woken.incrementAndGet();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            waiter.start();
+            waiters.add(waiter);
+        }
+        Thread thread = executeAsync(task);
+        release.countDown();
+        for (Thread waiter : waiters) {
+            waiter.join();
+        }
+        thread.join();
+        assertEquals(10, woken.get());
+    }
+
+    @Test(timeout = 60000)
+    public void testWhenDone() throws Exception {
+        FutureTask<Integer, Integer> task = new FutureTask<>(x -> x + 1, 1);
+        AtomicInteger calls = new AtomicInteger();
+        task.whenDone(done -> {
+            assertSame(task, done);
+            assertTrue(done.isReady());
+            calls.incrementAndGet();
+        });
+        assertEquals(0, calls.get());
+        task.execute();
+        assertEquals(1, calls.get());
+        task.whenDone(done -> calls.incrementAndGet());
+        assertEquals(2, calls.get());
+        task.cancel();
+        assertEquals(2, calls.get());
+
+        FutureTask<Integer, Integer> cancelled = new FutureTask<>(x -> x, 0);
+        cancelled.whenDone(done -> {
+            assertTrue(done.isAborted());
+            calls.incrementAndGet();
+        });
+        cancelled.cancel();
+        cancelled.cancel();
+        assertEquals(3, calls.get());
+    }
+
+    @Test(timeout = 60000)
+    public void testThenApply() throws Exception {
+        FutureTask<Integer, Integer> task = new FutureTask<>(x -> x * 3, 5);
+        FutureTask<String, Integer> string = task.thenApply(String::valueOf);
+        FutureTask<Integer, String> length = string.thenApply(String::length);
+        length.execute();
+        string.execute();
+        assertFalse(string.isReady());
+        assertFalse(length.isReady());
+        task.execute();
+        assertEquals("15", string.getResult());
+        assertEquals(Integer.valueOf(2), length.getResult());
+        assertEquals(Integer.valueOf(2), task.thenApply(x -> 2).getResult());
+    }
+
+    @Test(timeout = 60000)
+    public void testThenApplyAborted() throws Exception {
+        FutureTask<Integer, Integer> task = new FutureTask<>(x -> x, 5);
+        FutureTask<Integer, Integer> dependent = task.thenApply(x -> x + 1);
+        dependent.cancel();
+        task.execute();
+        assertTrue(task.isReady());
+        assertTrue(dependent.isAborted());
+
+        FutureTask<Integer, Integer> cancelled = new FutureTask<>(x -> x, 5);
+        FutureTask<Integer, Integer> afterCancelled = cancelled.thenApply(x -> x + 1);
+        cancelled.cancel();
+        assertTrue(afterCancelled.isAborted());
+
+        FutureTask<Integer, Integer> base = new FutureTask<>(x -> x, 5);
+        FutureTask<Integer, Integer> failing = base.thenApply(x -> {
+            throw new IllegalStateException();
+        });
+        base.execute();
+        assertTrue(base.isReady());
+        assertTrue(failing.isAborted());
+    }
+
+    @Test(timeout = 60000)
+    public void testCancelPending() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        FutureTask<Integer, Integer> task = new FutureTask<>(calls::addAndGet, 1);
+        task.cancel();
+        task.execute();
+        assertEquals(0, calls.get());
+        assertTrue(task.isAborted());
+        assertFalse(Thread.interrupted());
+    }
+
+    @Test(timeout = 60000)
+    public void testCancelRunning() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        FutureTask<Integer, Integer> task = new FutureTask<>(x -> {
+            started.countDown();
+            try {
+                Thread.sleep(100000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return x;
+        }, 0);
+        Thread thread = executeAsync(task);
+        started.await();
+        task.cancel();
+        assertTrue(task.isAborted());
+        thread.join();
+        assertNull(task.getResult());
+    }
+
+    @Test(timeout = 60000)
+    public void testCancelRace() throws Exception {
+        for (int i = 0; i < 2000; i++) {
+            FutureTask<Integer, Integer> task = new FutureTask<>(x -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.yield();
+                }
+                return x;
+            }, i);
+            Thread thread = executeAsync(task);
+            if (i % 2 == 0) {
+                Thread.yield();
+            }
+            task.cancel();
+            thread.join();
+            assertTrue(task.isAborted());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testError() throws Exception {
+        FutureTask<Integer, Integer> task = new FutureTask<>(x -> {
+            throw new AssertionError();
+        }, 0);
+        FutureTask<Integer, Integer> dependent = task.thenApply(x -> x);
+        try {
+            task.execute();
+            fail();
+        } catch (AssertionError ignored) {
+        }
+        assertTrue(task.isAborted());
+        assertTrue(dependent.isAborted());
+        assertTrue(task.waitForDone(0, TimeUnit.SECONDS));
+
+        FutureTask<Integer, Integer> base = new FutureTask<>(x -> x, 1);
+        FutureTask<Integer, Integer> failing = base.thenApply(x -> {
+            throw new StackOverflowError();
+        });
+        base.execute();
+        assertTrue(base.isReady());
+        assertTrue(failing.isAborted());
+    }
+
+    @Test(timeout = 60000)
+    public void testNoInterruptAfterExecute() throws Exception {
+        AtomicInteger stray = new AtomicInteger();
+        for (int i = 0; i < 2000; i++) {
+            FutureTask<Integer, Integer> task = new FutureTask<>(x -> {
+                long start = System.nanoTime();
+                while (!Thread.currentThread().isInterrupted() && System.nanoTime() - start < 20000) {
+                    Thread.yield();
+                }
+                return x;
+            }, i);
+            Thread thread = new Thread(() -> {
+                task.execute();
+                Thread.interrupted();
+                long start = System.nanoTime();
+                while (System.nanoTime() - start < 20000) {
+                    Thread.yield();
+                }
+                if (Thread.interrupted()) {
+                    stray.incrementAndGet();
+                }
+            });
+            thread.start();
+            if (i % 2 == 0) {
+                Thread.yield();
+            }
+            task.cancel();
+            thread.join();
+        }
+        assertEquals(0, stray.get());
+    }
+}
@@ -4,18 +4,36 @@ import info.kgeorgiy.java.advanced.concurrent.ListIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
  * Implementation of interface {@link info.kgeorgiy.java.advanced.concurrent.ListIP}
+ * <p>
+ * With a {@link info.kgeorgiy.java.advanced.mapper.ParallelMapper} list is cut into
+ * {@code count} contiguous chunks, one per thread. With a {@link ForkJoinPool} list is
+ * split recursively into about {@value #LEAVES_PER_THREAD} times more ranges, which are
+ * stolen by idle threads, so uneven cost of elements doesn't leave threads idle. Leaf size
+ * is tuned by measured cost of elements: ranges cheaper than {@value #MIN_LEAF_NANOS} ns
+ * aren't split, ranges more expensive than {@value #MAX_LEAF_NANOS} ns are split further.
  *
  * @author Daniyar Itegulov
  */
 public class IterativeParallelism implements ListIP {
+    private static final int LEAVES_PER_THREAD = 8;
+    private static final long MIN_LEAF_NANOS = 50_000;
+    private static final long MAX_LEAF_NANOS = 1_000_000;
+    private static final int PARALLEL_SCATTER_THRESHOLD = 1 << 16;
+    private static final PseudoMonoid<Void> NOTHING = new PseudoMonoid<>((a, b) -> null, () -> null);
+
     private final ParallelMapper parallelMapper;
+    private final ForkJoinPool forkJoinPool;
 
     /**
      * Class constructor, specifying which {@link info.kgeorgiy.java.advanced.mapper.ParallelMapper}
@@ -25,6 +43,19 @@ public class IterativeParallelism implements ListIP {
      */
     public IterativeParallelism(ParallelMapper parallelMapper) {
         this.parallelMapper = parallelMapper;
+        this.forkJoinPool = null;
+    }
+
+    /**
+     * Class constructor, specifying which {@link ForkJoinPool} to use for recursive
+     * splitting. Number of threads, passed to methods, only affects granularity then.
+     *
+     * @param forkJoinPool pool, which will be used for parallel computations,
+     * for example {@link ForkJoinPool#commonPool()}
+     */
+    public IterativeParallelism(ForkJoinPool forkJoinPool) {
+        this.parallelMapper = null;
+        this.forkJoinPool = forkJoinPool;
     }
 
     /**
@@ -68,7 +99,7 @@ public class IterativeParallelism implements ListIP {
     /**
      * Returns whether any elements of {@code List} match the provided {@link java.util.function.Predicate}.
      * Returns {@code false} if {@code List} is empty. Uses {@code count} threads to do
-     * this parallel.
+     * this parallel. Stops as soon as some thread finds matching element.
      *
      * @param count number of threads to use
      * @param list list to process
@@ -79,14 +110,13 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public <E> boolean any(int count, List<? extends E> list, Predicate<? super E> predicate) throws InterruptedException {
-        PseudoMonoid<Boolean> pseudoMonoid = new PseudoMonoid<>(Boolean::logicalOr, () -> Boolean.FALSE);
-        return parallelizeList(count, pseudoMonoid, predicate::test, list);
+        return find(count, list, predicate, true);
     }
 
     /**
      * Returns whether all elements of {@code List} match the provided {@link java.util.function.Predicate}.
      * Returns {@code true} if {@code List} is empty. Uses {@code count} threads
-     * to do this parallel.
+     * to do this parallel. Stops as soon as some thread finds not matching element.
      *
      * @param count number of threads to use
      * @param list list to process
@@ -97,8 +127,7 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public <E> boolean all(int count, List<? extends E> list, Predicate<? super E> predicate) throws InterruptedException {
-        PseudoMonoid<Boolean> pseudoMonoid = new PseudoMonoid<>(Boolean::logicalAnd, () -> Boolean.TRUE);
-        return parallelizeList(count, pseudoMonoid, predicate::test, list);
+        return !find(count, list, predicate, false);
     }
 
     /**
@@ -114,8 +143,23 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public String concat(int count, List<?> list) throws InterruptedException {
-        PseudoMonoid<StringBuilder> pseudoMonoid = new PseudoMonoid<>(StringBuilder::append, StringBuilder::new);
-        return this.parallelizeList(count, pseudoMonoid, o -> new StringBuilder(o.toString()), list).toString();
+        List<?> elements = randomAccess(list);
+        List<StringBuilder> parts = parallelizeRanges(count, segments(), (from, to) -> {
+            StringBuilder builder = new StringBuilder();
+            for (int i = from; i < to; i++) {
+                builder.append(elements.get(i));
+            }
+            return segment(builder);
+        }, elements.size(), null);
+        int length = 0;
+        for (StringBuilder part : parts) {
+            length += part.length();
+        }
+        StringBuilder result = new StringBuilder(length);
+        for (StringBuilder part : parts) {
+            result.append(part);
+        }
+        return result.toString();
     }
 
     /**
@@ -126,17 +170,26 @@ public class IterativeParallelism implements ListIP {
      * @param count number of threads to use
      * @param list list to process
      * @param predicate predicate to apply to elements
-     * @return the new {@code List}
+     * @return the new fixed-size {@code List}
      * @throws InterruptedException if some of created threads was interrupted
      */
     @Override
+    @SuppressWarnings("unchecked")
     public <T> List<T> filter(int count, List<? extends T> list, Predicate<? super T> predicate) throws InterruptedException {
-        PseudoMonoid<List<T>> pseudoMonoid = new PseudoMonoid<>((a, b) -> {
-            a.addAll(b);
-            return a;
-        }, ArrayList::new);
-        return parallelizeList(count, pseudoMonoid,
-                a -> predicate.test(a) ? Collections.singletonList(a) : new ArrayList<>(), list);
+        List<? extends T> elements = randomAccess(list);
+        List<Segment> segments = parallelizeRanges(count, segments(), (from, to) -> {
+            Object[] values = new Object[to - from];
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                T element = elements.get(i);
+                if (predicate.test(element)) {
+                    values[size++] = element;
+                }
+            }
+            return segment(new Segment(values, size));
+        }, elements.size(), null);
+        Object[] result = gather(count, segments);
+        return (List<T>) Arrays.asList(result);
     }
 
     /**
@@ -147,41 +200,292 @@ public class IterativeParallelism implements ListIP {
      * @param count number of threads to use
      * @param list list to process
      * @param function function to apply to elements
-     * @return the new {@code List}
+     * @return the new fixed-size {@code List}
      * @throws InterruptedException if some of created threads was interrupted
      */
     @Override
+    @SuppressWarnings("unchecked")
     public <T, U> List<U> map(int count,
                               List<? extends T> list,
                               Function<? super T, ? extends U> function) throws InterruptedException {
-        PseudoMonoid<List<U>> pseudoMonoid = new PseudoMonoid<>((a, b) -> {
-            a.addAll(b);
+        List<? extends T> elements = randomAccess(list);
+        Object[] result = new Object[elements.size()];
+        parallelizeRanges(count, NOTHING, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = function.apply(elements.get(i));
+            }
+            return null;
+        }, elements.size(), null);
+        return (List<U>) Arrays.asList(result);
+    }
+
+    /**
+     * Returns lazy pipeline over the list, which runs all its stages in one pass over
+     * every chunk, for example {@code over(count, list).filter(p).map(f).reduce(op)}.
+     * Uses {@code count} threads to run terminal operations.
+     *
+     * @param count number of threads to use
+     * @param list list to process
+     * @param <T> type of elements
+     * @return the new pipeline
+     */
+    public <T> Pipeline<T> over(int count, List<? extends T> list) {
+        return new Pipeline<>(this, count, randomAccess(list));
+    }
+
+    /**
+     * Returns lazy pipeline over the list, which uses as many threads, as there are
+     * available processors. See {@link #over(int, List)}.
+     *
+     * @param list list to process
+     * @param <T> type of elements
+     * @return the new pipeline
+     */
+    public <T> Pipeline<T> over(List<? extends T> list) {
+        return over(Runtime.getRuntime().availableProcessors(), list);
+    }
+
+    /**
+     * Returns the maximum element of array. Uses {@code count} threads to do this parallel.
+     *
+     * @param count number of threads to use
+     * @param array array to process
+     * @return maximum element of array
+     * @throws IllegalArgumentException if array is empty
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public int maxInt(int count, int[] array) throws InterruptedException {
+        if (array.length < 1) {
+            throw new IllegalArgumentException("Can't find maximum of empty array");
+        }
+        return parallelizeRanges(count, new PseudoMonoid<>(Math::max, () -> Integer.MIN_VALUE),
+                (from, to) -> PrimitiveReductions.maxInt(array, from, to), array.length, null);
+    }
+
+    /**
+     * Returns the minimum element of array. Uses {@code count} threads to do this parallel.
+     *
+     * @param count number of threads to use
+     * @param array array to process
+     * @return minimum element of array
+     * @throws IllegalArgumentException if array is empty
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public int minInt(int count, int[] array) throws InterruptedException {
+        if (array.length < 1) {
+            throw new IllegalArgumentException("Can't find minimum of empty array");
+        }
+        return parallelizeRanges(count, new PseudoMonoid<>(Math::min, () -> Integer.MAX_VALUE),
+                (from, to) -> PrimitiveReductions.minInt(array, from, to), array.length, null);
+    }
+
+    /**
+     * Returns sum of elements of array as {@code long}, so it can't overflow. Uses {@code count} threads
+     * to do this parallel.
+     *
+     * @param count number of threads to use
+     * @param array array to process
+     * @return sum of elements of array, {@code 0} if it's empty
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public long sumInt(int count, int[] array) throws InterruptedException {
+        return parallelizeRanges(count, new PseudoMonoid<>(Long::sum, () -> 0L),
+                (from, to) -> PrimitiveReductions.sumInt(array, from, to), array.length, null);
+    }
+
+    /**
+     * Returns sum of elements of array, which wraps around on overflow. Uses {@code count}
+     * threads to do this parallel.
+     *
+     * @param count number of threads to use
+     * @param array array to process
+     * @return sum of elements of array, {@code 0} if it's empty
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public long sumLong(int count, long[] array) throws InterruptedException {
+        return parallelizeRanges(count, new PseudoMonoid<>(Long::sum, () -> 0L),
+                (from, to) -> PrimitiveReductions.sumLong(array, from, to), array.length, null);
+    }
+
+    /**
+     * Returns the minimum element of array in terms of {@link Math#min(double, double)}:
+     * {@code NaN}, if array contains one. Uses {@code count} threads to do this parallel.
+     *
+     * @param count number of threads to use
+     * @param array array to process
+     * @return minimum element of array
+     * @throws IllegalArgumentException if array is empty
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public double minDouble(int count, double[] array) throws InterruptedException {
+        if (array.length < 1) {
+            throw new IllegalArgumentException("Can't find minimum of empty array");
+        }
+        return parallelizeRanges(count, new PseudoMonoid<>(Math::min, () -> Double.POSITIVE_INFINITY),
+                (from, to) -> PrimitiveReductions.minDouble(array, from, to), array.length, null);
+    }
+
+    /**
+     * Returns the maximum element of array in terms of {@link Math#max(double, double)}:
+     * {@code NaN}, if array contains one. Uses {@code count} threads to do this parallel.
+     *
+     * @param count number of threads to use
+     * @param array array to process
+     * @return maximum element of array
+     * @throws IllegalArgumentException if array is empty
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public double maxDouble(int count, double[] array) throws InterruptedException {
+        if (array.length < 1) {
+            throw new IllegalArgumentException("Can't find maximum of empty array");
+        }
+        return parallelizeRanges(count, new PseudoMonoid<>(Math::max, () -> Double.NEGATIVE_INFINITY),
+                (from, to) -> PrimitiveReductions.maxDouble(array, from, to), array.length, null);
+    }
+
+    /**
+     * Returns number of elements of array, which match the provided {@link IntPredicate}.
+     * Uses {@code count} threads to do this parallel.
+     *
+     * @param count number of threads to use
+     * @param array array to process
+     * @param predicate predicate to apply to elements
+     * @return number of matching elements
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public int countMatching(int count, int[] array, IntPredicate predicate) throws InterruptedException {
+        return parallelizeRanges(count, new PseudoMonoid<>(Integer::sum, () -> 0),
+                (from, to) -> PrimitiveReductions.countMatching(array, from, to, predicate), array.length, null);
+    }
+
+    /**
+     * Splits range {@code [min, max)} into {@code buckets} buckets of equal width and counts
+     * elements of array in every bucket. Elements outside of the range aren't counted.
+     * Uses {@code count} threads to do this parallel.
+     *
+     * @param count number of threads to use
+     * @param array array to process
+     * @param min low endpoint of the range (inclusive)
+     * @param max high endpoint of the range (exclusive)
+     * @param buckets number of buckets
+     * @return array of {@code buckets} counts, {@code i}-th bucket contains elements {@code x},
+     * such that {@code (x - min) * buckets / (max - min) == i}
+     * @throws IllegalArgumentException if {@code min >= max} or {@code buckets <= 0}
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public long[] histogram(int count, int[] array, int min, int max, int buckets) throws InterruptedException {
+        if (min >= max) {
+            throw new IllegalArgumentException("min >= max");
+        }
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("Non-positive number of buckets: " + buckets);
+        }
+        PseudoMonoid<long[]> pseudoMonoid = new PseudoMonoid<>((a, b) -> {
+            for (int i = 0; i < buckets; i++) {
+                a[i] += b[i];
+            }
             return a;
-        }, ArrayList::new);
-        return parallelizeList(count, pseudoMonoid, (a) -> Collections.singletonList(function.apply(a)), list);
+        }, () -> new long[buckets]);
+        return parallelizeRanges(count, pseudoMonoid,
+                (from, to) -> PrimitiveReductions.histogram(array, from, to, min, max, buckets), array.length, null);
+    }
+
+    /**
+     * Checks whether there is an element, on which predicate returns {@code expected}.
+     * Once a chunk finds such element, other chunks stop before their next element,
+     * and chunks, which haven't been started yet, return immediately.
+     */
+    private <T> boolean find(int count, List<? extends T> list, Predicate<? super T> predicate,
+                             boolean expected) throws InterruptedException {
+        List<? extends T> elements = randomAccess(list);
+        AtomicBoolean found = new AtomicBoolean();
+        parallelizeRanges(count, NOTHING, (from, to) -> {
+            for (int i = from; i < to && !found.get(); i++) {
+                if (predicate.test(elements.get(i)) == expected) {
+                    found.set(true);
+                }
+            }
+            return null;
+        }, elements.size(), found);
+        return found.get();
+    }
+
+    /**
+     * Copies contents of segments, one after another, into a new array.
+     */
+    Object[] gather(int count, List<Segment> segments) throws InterruptedException {
+        int[] offsets = new int[segments.size() + 1];
+        for (int i = 0; i < segments.size(); i++) {
+            offsets[i + 1] = offsets[i] + segments.get(i).size;
+        }
+        Object[] result = new Object[offsets[segments.size()]];
+        RangeFolder<Void> scatter = (from, to) -> {
+            for (int i = from; i < to; i++) {
+                System.arraycopy(segments.get(i).values, 0, result, offsets[i], segments.get(i).size);
+            }
+            return null;
+        };
+        if (result.length < PARALLEL_SCATTER_THRESHOLD) {
+            scatter.fold(0, segments.size());
+        } else {
+            parallelizeRanges(count, NOTHING, scatter, segments.size(), null);
+        }
+        return result;
+    }
+
+    static <T> List<? extends T> randomAccess(List<? extends T> list) {
+        return list instanceof RandomAccess ? list : new ArrayList<>(list);
+    }
+
+    /**
+     * Cuts range {@code [0, size)} into {@code count} ranges (or less, if it's smaller),
+     * sizes of which differ by at most one.
+     *
+     * @return bounds of ranges: {@code i}-th range is {@code [bounds[i], bounds[i + 1])}
+     */
+    private static int[] split(int count, int size) {
+        count = Math.max(1, Math.min(count, size));
+        int[] bounds = new int[count + 1];
+        int chunkSize = size / count;
+        int rest = size % count;
+        for (int i = 0; i < count; i++) {
+            bounds[i + 1] = bounds[i] + chunkSize + (i < rest ? 1 : 0);
+        }
+        return bounds;
     }
 
     private <T, E> E parallelizeList(int count,
                                      PseudoMonoid<E> pseudoMonoid,
                                      Function<? super T, ? extends E> caster,
                                      List<? extends T> list) throws InterruptedException {
-        if (count > list.size()) {
-            count = list.size();
-        }
-        List<List<? extends T>> tasks = new ArrayList<>(count);
-        int chunkSize = list.size() / count;
-        for (int left = 0; left < list.size(); left += chunkSize) {
-            int right = Math.min(left + chunkSize, list.size());
-            tasks.add(list.subList(left, right));
-        }
-
-        List<E> result = parallelMapper.map(t -> {
+        List<? extends T> elements = randomAccess(list);
+        return parallelizeRanges(count, pseudoMonoid, (from, to) -> {
             E accumulator = pseudoMonoid.getNeutral();
-            for (T element : t) {
-                accumulator = pseudoMonoid.operation(accumulator, caster.apply(element));
+            for (int i = from; i < to; i++) {
+                accumulator = pseudoMonoid.operation(accumulator, caster.apply(elements.get(i)));
             }
             return accumulator;
-        }, tasks);
+        }, elements.size(), null);
+    }
+
+    /**
+     * Folds range {@code [0, size)}: applies {@code folder} to its parts in parallel
+     * and combines results in order.
+     *
+     * @param stop flag, after setting which ranges aren't split any more, or {@code null}
+     */
+    <E> E parallelizeRanges(int count, PseudoMonoid<E> pseudoMonoid, RangeFolder<E> folder,
+                                    int size, AtomicBoolean stop) throws InterruptedException {
+        if (forkJoinPool != null) {
+            return forkJoinPool.invoke(new Fold<>(new FoldJob<>(count, size, pseudoMonoid, folder, stop)));
+        }
+        int[] bounds = split(count, size);
+        List<Integer> chunks = new ArrayList<>(bounds.length - 1);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            chunks.add(i);
+        }
+
+        List<E> result = parallelMapper.map(i -> folder.fold(bounds[i], bounds[i + 1]), chunks);
 
         E answer = result.get(0);
         for (int i = 1; i < result.size(); i++) {
@@ -191,11 +495,44 @@ public class IterativeParallelism implements ListIP {
         return answer;
     }
 
-    private static class PseudoMonoid<T> {
+    /**
+     * Computes result for a range of indices.
+     */
+    interface RangeFolder<E> {
+        E fold(int from, int to);
+    }
+
+    /**
+     * Filtered elements of one range: first {@code size} elements of {@code values}.
+     */
+    static class Segment {
+        private final Object[] values;
+        private final int size;
+
+        Segment(Object[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+    }
+
+    static <S> PseudoMonoid<List<S>> segments() {
+        return new PseudoMonoid<>((a, b) -> {
+            a.addAll(b);
+            return a;
+        }, ArrayList::new);
+    }
+
+    static <S> List<S> segment(S value) {
+        List<S> segments = new ArrayList<>();
+        segments.add(value);
+        return segments;
+    }
+
+    static class PseudoMonoid<T> {
         private final BinaryOperator<T> operation;
         private final Supplier<T> neutralElementGenerator;
 
-        private PseudoMonoid(final BinaryOperator<T> operation, final Supplier<T> neutralElementGenerator) {
+        PseudoMonoid(final BinaryOperator<T> operation, final Supplier<T> neutralElementGenerator) {
             this.operation = operation;
             this.neutralElementGenerator = neutralElementGenerator;
         }
@@ -208,4 +545,79 @@ public class IterativeParallelism implements ListIP {
             return neutralElementGenerator.get();
         }
     }
+
+    /**
+     * State, shared by all ranges of one recursive fold.
+     */
+    private static class FoldJob<E> {
+        private final int size;
+        private final PseudoMonoid<E> pseudoMonoid;
+        private final RangeFolder<E> folder;
+        private final AtomicBoolean stop;
+        private final int grain;
+        /**
+         * Last measured cost of one element in nanoseconds, or {@code -1} if unknown yet.
+         */
+        private volatile long elementNanos = -1;
+
+        private FoldJob(int count, int size, PseudoMonoid<E> pseudoMonoid, RangeFolder<E> folder,
+                        AtomicBoolean stop) {
+            this.size = size;
+            this.pseudoMonoid = pseudoMonoid;
+            this.folder = folder;
+            this.stop = stop;
+            this.grain = Math.max(1, size / (Math.max(1, count) * LEAVES_PER_THREAD));
+        }
+
+        private boolean shouldSplit(int size) {
+            if (size <= 1 || stop != null && stop.get()) {
+                return false;
+            }
+            long nanos = elementNanos;
+            if (nanos < 0) {
+                return size > grain;
+            }
+            long cost = size * nanos;
+            return cost >= 2 * MIN_LEAF_NANOS && (size > grain || cost > MAX_LEAF_NANOS);
+        }
+
+        private E fold(int from, int to) {
+            long start = System.nanoTime();
+            E result = folder.fold(from, to);
+            if (to > from) {
+                elementNanos = Math.max(1, (System.nanoTime() - start) / (to - from));
+            }
+            return result;
+        }
+    }
+
+    private static class Fold<E> extends RecursiveTask<E> {
+        private static final long serialVersionUID = 6087143529013386216L;
+
+        private final FoldJob<E> job;
+        private final int from;
+        private final int to;
+
+        private Fold(FoldJob<E> job) {
+            this(job, 0, job.size);
+        }
+
+        private Fold(FoldJob<E> job, int from, int to) {
+            this.job = job;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected E compute() {
+            if (!job.shouldSplit(to - from)) {
+                return job.fold(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            Fold<E> right = new Fold<>(job, mid, to);
+            right.fork();
+            E left = new Fold<>(job, from, mid).compute();
+            return job.pseudoMonoid.operation(left, right.join());
+        }
+    }
 }
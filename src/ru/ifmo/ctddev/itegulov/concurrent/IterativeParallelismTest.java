@@ -0,0 +1,225 @@
+package ru.ifmo.ctddev.itegulov.concurrent;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class IterativeParallelismTest extends ParallelismFixture {
+    private static void spin(long nanos) {
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < nanos) {
+            Thread.yield();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testAnyAll() throws Exception {
+        List<Predicate<Integer>> predicates = Arrays.asList(x -> x > 990, x -> x % 2 == 0, x -> x < 1000, x -> x > 1000);
+        for (IterativeParallelism parallelism : implementations) {
+            for (int size : SIZES) {
+                List<Integer> list = randomList(size);
+                for (int count : COUNTS) {
+                    for (Predicate<Integer> predicate : predicates) {
+                        assertEquals(list.stream().anyMatch(predicate), parallelism.any(count, list, predicate));
+                        assertEquals(list.stream().allMatch(predicate), parallelism.all(count, list, predicate));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testAnyAllShortCircuit() throws Exception {
+        List<Integer> list = new ArrayList<>(Collections.nCopies(1000000, 1));
+        for (IterativeParallelism parallelism : implementations) {
+            for (int count : COUNTS) {
+                AtomicInteger calls = new AtomicInteger();
+                assertTrue(parallelism.any(count, list, x -> calls.incrementAndGet() > 0));
+                assertTrue(calls.get() < 1000);
+                calls.set(0);
+                assertFalse(parallelism.all(count, list, x -> calls.incrementAndGet() < 0));
+                assertTrue(calls.get() < 1000);
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testMinimumMaximum() throws Exception {
+        for (IterativeParallelism parallelism : implementations) {
+            for (int size : SIZES) {
+                if (size == 0) {
+                    continue;
+                }
+                List<Integer> list = randomList(size);
+                for (int count : COUNTS) {
+                    assertEquals(list.stream().max(Integer::compare).get(), parallelism.maximum(count, list, Integer::compare));
+                    assertEquals(list.stream().min(Integer::compare).get(), parallelism.minimum(count, list, Integer::compare));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaximumOfEmpty() throws Exception {
+        new IterativeParallelism(forkJoinPool).maximum(3, Collections.<Integer>emptyList(), Integer::compare);
+    }
+
+    @Test(timeout = 60000)
+    public void testForkJoinUnevenCost() throws Exception {
+        IterativeParallelism parallelism = new IterativeParallelism(forkJoinPool);
+        List<Integer> list = IntStream.range(0, 2000).boxed().collect(Collectors.toList());
+        for (int count : COUNTS) {
+            AtomicInteger calls = new AtomicInteger();
+            // the first tenth of elements is expensive, others are cheap
+            assertEquals(Integer.valueOf(1999), parallelism.maximum(count, list, (a, b) -> {
+                calls.incrementAndGet();
+                if (b < 200) {
+                    spin(20000);
+                }
+                return Integer.compare(a, b);
+            }));
+            assertTrue(calls.get() >= list.size() - 1);
+            calls.set(0);
+            assertTrue(parallelism.all(count, list, x -> {
+                calls.incrementAndGet();
+                if (x >= 1800) {
+                    spin(20000);
+                }
+                return true;
+            }));
+            assertEquals(list.size(), calls.get());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testForkJoinCommonPool() throws Exception {
+        IterativeParallelism parallelism = new IterativeParallelism(ForkJoinPool.commonPool());
+        List<Integer> list = randomList(100000);
+        assertEquals(list.stream().max(Integer::compare).get(), parallelism.maximum(1, list, Integer::compare));
+        assertEquals(list.stream().anyMatch(x -> x == 7), parallelism.any(64, list, x -> x == 7));
+    }
+
+    @Test(timeout = 60000)
+    public void testMapFilterConcat() throws Exception {
+        for (IterativeParallelism parallelism : implementations) {
+            for (int size : SIZES) {
+                List<Integer> list = randomList(size);
+                for (int count : COUNTS) {
+                    assertEquals(list.stream().map(x -> x * 2).collect(Collectors.toList()),
+                            parallelism.map(count, list, x -> x * 2));
+                    assertEquals(list.stream().filter(x -> x % 3 == 0).collect(Collectors.toList()),
+                            parallelism.filter(count, list, x -> x % 3 == 0));
+                    assertEquals(list.stream().map(String::valueOf).collect(Collectors.joining()),
+                            parallelism.concat(count, list));
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testMapFilterEdgeCases() throws Exception {
+        List<Integer> linked = new LinkedList<>(randomList(70000));
+        for (IterativeParallelism parallelism : implementations) {
+            for (int count : COUNTS) {
+                assertEquals(Collections.nCopies(linked.size(), null), parallelism.map(count, linked, x -> null));
+                assertEquals(linked, parallelism.filter(count, linked, x -> true));
+                assertEquals(Collections.emptyList(), parallelism.filter(count, linked, x -> false));
+                assertEquals(Arrays.asList("a", null, "c"),
+                        parallelism.filter(count, Arrays.asList("a", null, "b", "c"), x -> !"b".equals(x)));
+                assertEquals("anullc", parallelism.concat(count, Arrays.asList("a", null, "c")));
+            }
+        }
+    }
+
+    private static long[] histogram(int[] array, int min, int max, int buckets) {
+        long[] histogram = new long[buckets];
+        for (int value : array) {
+            if (value >= min && value < max) {
+                histogram[(int) (((long) value - min) * buckets / ((long) max - min))]++;
+            }
+        }
+        return histogram;
+    }
+
+    @Test(timeout = 60000)
+    public void testPrimitiveReductions() throws Exception {
+        for (IterativeParallelism parallelism : implementations) {
+            for (int size : SIZES) {
+                int[] ints = RANDOM.ints(size).toArray();
+                long[] longs = RANDOM.longs(size).toArray();
+                double[] doubles = RANDOM.doubles(size, -1e9, 1e9).toArray();
+                for (int count : COUNTS) {
+                    assertEquals(Arrays.stream(ints).asLongStream().sum(), parallelism.sumInt(count, ints));
+                    assertEquals(Arrays.stream(longs).sum(), parallelism.sumLong(count, longs));
+                    assertEquals(Arrays.stream(ints).filter(x -> x % 5 == 0).count(),
+                            parallelism.countMatching(count, ints, x -> x % 5 == 0));
+                    if (size > 0) {
+                        assertEquals(Arrays.stream(ints).max().getAsInt(), parallelism.maxInt(count, ints));
+                        assertEquals(Arrays.stream(ints).min().getAsInt(), parallelism.minInt(count, ints));
+                        assertEquals(Arrays.stream(doubles).max().getAsDouble(), parallelism.maxDouble(count, doubles), 0);
+                        assertEquals(Arrays.stream(doubles).min().getAsDouble(), parallelism.minDouble(count, doubles), 0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testPrimitiveEdgeCases() throws Exception {
+        for (IterativeParallelism parallelism : implementations) {
+            for (int count : COUNTS) {
+                assertEquals(3L * Integer.MAX_VALUE, parallelism.sumInt(count, new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE}));
+                assertEquals(Long.MIN_VALUE, parallelism.sumLong(count, new long[]{Long.MAX_VALUE, 1}));
+                assertEquals(Integer.MIN_VALUE, parallelism.maxInt(count, new int[]{Integer.MIN_VALUE}));
+                assertTrue(Double.isNaN(parallelism.maxDouble(count, new double[]{1, Double.NaN, 2})));
+                assertTrue(Double.isNaN(parallelism.minDouble(count, new double[]{1, 2, Double.NaN})));
+                assertEquals(Double.NEGATIVE_INFINITY, parallelism.minDouble(count, new double[]{0, Double.NEGATIVE_INFINITY}), 0);
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testHistogram() throws Exception {
+        for (IterativeParallelism parallelism : implementations) {
+            for (int size : SIZES) {
+                int[] array = RANDOM.ints(size, -1000, 1000).toArray();
+                for (int count : COUNTS) {
+                    for (int buckets : new int[]{1, 7, 100}) {
+                        assertArrayEquals(histogram(array, -500, 700, buckets),
+                                parallelism.histogram(count, array, -500, 700, buckets));
+                    }
+                }
+            }
+            int[] extremes = {Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+            assertArrayEquals(histogram(extremes, Integer.MIN_VALUE, Integer.MAX_VALUE, 4),
+                    parallelism.histogram(3, extremes, Integer.MIN_VALUE, Integer.MAX_VALUE, 4));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxIntOfEmpty() throws Exception {
+        new IterativeParallelism(mapper).maxInt(2, new int[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHistogramWithoutBuckets() throws Exception {
+        new IterativeParallelism(mapper).histogram(2, new int[]{1}, 0, 10, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHistogramOfEmptyRange() throws Exception {
+        new IterativeParallelism(forkJoinPool).histogram(2, new int[]{1}, 10, 10, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMinDoubleOfEmpty() throws Exception {
+        new IterativeParallelism(forkJoinPool).minDouble(16, new double[0]);
+    }
+}
@@ -3,15 +3,32 @@ package ru.ifmo.ctddev.itegulov.concurrent;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.function.Function;
 
 /**
  * Basic implementation of {@link info.kgeorgiy.java.advanced.mapper.ParallelMapper}
+ * <p>
+ * List is split into contiguous ranges, each range is one task, which writes results
+ * straight into a shared array. Size of ranges depends on number of threads and on cost
+ * of the function, which is measured on the first elements in the calling thread: there
+ * are about {@value #CHUNKS_PER_THREAD} ranges per thread, unless that makes a range
+ * cheaper than {@value #MIN_CHUNK_NANOS} ns, and cheap enough lists aren't split at all.
  *
  * @author Daniyar Itegulov
  */
 public class ParallelMapperImpl implements ParallelMapper {
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final long MIN_CHUNK_NANOS = 100_000;
+    private static final long PROBE_NANOS = 20_000;
+    private static final int PROBE_ELEMENTS = 1024;
+    static final Object SKIPPED = new Object();
+
+    private final int threads;
     private TaskExecutor taskExecutor;
 
     /**
@@ -21,32 +38,132 @@ public class ParallelMapperImpl implements ParallelMapper {
      * @param threads number of threads to use
      */
     public ParallelMapperImpl(int threads) {
+        this.threads = threads;
         taskExecutor = new TaskExecutor(threads);
     }
 
+    /**
+     * Class constructor, specifying what number of threads to use
+     * for parallel computation and whether they should steal work
+     * from each other (see {@link TaskExecutor#TaskExecutor(int, boolean)}).
+     *
+     * @param threads number of threads to use
+     * @param workStealing {@code true} to use work stealing
+     */
+    public ParallelMapperImpl(int threads, boolean workStealing) {
+        this.threads = threads;
+        taskExecutor = new TaskExecutor(threads, workStealing);
+    }
+
     /**
      * Returns a {@code List} consisting of the results of applying the given
      * {@link java.util.function.Function} to the elements of this {@code List}.
+     * Elements, on which function has thrown an exception, are skipped.
      *
      * @param function function to apply to elements
      * @param list list to process
-     * @return the new {@code List}
+     * @return the new fixed-size {@code List}
      * @throws InterruptedException if some of created threads was interrupted
      */
     @Override
-    public <T, R> List<R> map(final Function<? super T, ? extends R> function, final List<? extends T> list) throws InterruptedException {
-        List<FutureTask<R, T>> futureTasks = new ArrayList<>();
-        for (T arg : list) {
-            futureTasks.add(taskExecutor.submit(function::apply, arg));
-        }
-        List<R> result = new ArrayList<>();
-        for (FutureTask<R, T> futureTask : futureTasks) {
-            futureTask.waitForDone();
-            if (futureTask.isReady()) {
-                result.add(futureTask.getResult());
+    public <T, R> List<R> map(final Function<? super T, ? extends R> function, List<? extends T> list) throws InterruptedException {
+        if (!(list instanceof RandomAccess)) {
+            list = new ArrayList<>(list);
+        }
+        int size = list.size();
+        Object[] results = new Object[size];
+        // slots of ranges, which are cancelled before computing them, stay skipped
+        Arrays.fill(results, SKIPPED);
+        int from = 0;
+        int chunkSize = 1;
+        // few elements are dealt one per task without probing, so that a single
+        // expensive element doesn't delay the others
+        if (size > threads * CHUNKS_PER_THREAD) {
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                apply(function, list, results, from++);
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < PROBE_NANOS && from < Math.min(size, PROBE_ELEMENTS));
+            long elementNanos = Math.max(1, elapsed / from);
+            int remaining = size - from;
+            int balancedSize = (remaining + threads * CHUNKS_PER_THREAD - 1) / (threads * CHUNKS_PER_THREAD);
+            chunkSize = (int) Math.max(1, Math.max(balancedSize, Math.min(remaining, MIN_CHUNK_NANOS / elementNanos)));
+        }
+        if (chunkSize >= size - from) {
+            applyRange(function, list, results, from, size);
+            return collect(results);
+        }
+        int ranges = (size - from + chunkSize - 1) / chunkSize;
+        // range is claimed either by its task, which then computes it, or by this thread,
+        // after its task has been cancelled, so that the task never touches results
+        AtomicIntegerArray claimed = new AtomicIntegerArray(ranges);
+        CountDownLatch stopped = new CountDownLatch(ranges);
+        List<FutureTask<Void, Integer>> futureTasks = new ArrayList<>(ranges);
+        for (int i = 0; i < ranges; i++) {
+            int left = from + i * chunkSize;
+            int right = Math.min(left + chunkSize, size);
+            List<? extends T> args = list;
+            futureTasks.add(taskExecutor.submit(range -> {
+                if (claimed.compareAndSet(range, 0, 1)) {
+                    try {
+                        applyRange(function, args, results, left, right);
+                    } finally {
+                        stopped.countDown();
+                    }
+                }
+                return null;
+            }, i));
+        }
+        try {
+            for (int i = 0; i < ranges; i++) {
+                futureTasks.get(i).waitForDone();
+                if (futureTasks.get(i).isAborted() && claimed.compareAndSet(i, 0, 1)) {
+                    stopped.countDown();
+                }
+            }
+            // cancelled task can still be running
+            stopped.await();
+        } catch (InterruptedException e) {
+            futureTasks.forEach(FutureTask::cancel);
+            throw e;
+        }
+        return collect(results);
+    }
+
+    private static <T, R> Void applyRange(Function<? super T, ? extends R> function, List<? extends T> list,
+                                          Object[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            apply(function, list, results, i);
+        }
+        return null;
+    }
+
+    /**
+     * Stores result of applying function to element with given index, or {@link #SKIPPED}
+     * if function has thrown an exception.
+     */
+    static <T, R> void apply(Function<? super T, ? extends R> function, List<? extends T> list,
+                                     Object[] results, int index) {
+        try {
+            results[index] = function.apply(list.get(index));
+        } catch (RuntimeException e) {
+            results[index] = SKIPPED;
+        }
+    }
+
+    /**
+     * @return list of results, which aren't {@link #SKIPPED}, backed by {@code results} if possible
+     */
+    @SuppressWarnings("unchecked")
+    static <R> List<R> collect(Object[] results) {
+        int size = 0;
+        for (Object result : results) {
+            if (result != SKIPPED) {
+                results[size++] = result;
             }
         }
-        return result;
+        return (List<R>) Arrays.asList(size == results.length ? results : Arrays.copyOf(results, size));
     }
 
     /**
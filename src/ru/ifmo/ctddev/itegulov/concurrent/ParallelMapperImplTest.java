@@ -0,0 +1,113 @@
+package ru.ifmo.ctddev.itegulov.concurrent;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class ParallelMapperImplTest {
+    private static final Random RANDOM = new Random(3239);
+
+    private static List<Integer> randomList(int size) {
+        return RANDOM.ints(size).boxed().collect(Collectors.toList());
+    }
+
+    private static <T, R> void assertMaps(ParallelMapperImpl mapper, Function<T, R> function,
+                                          List<T> list) throws InterruptedException {
+        assertEquals(list.stream().map(function).collect(Collectors.toList()), mapper.map(function, list));
+    }
+
+    @Test(timeout = 60000)
+    public void testOrder() throws Exception {
+        for (boolean workStealing : new boolean[]{false, true}) {
+            for (int threads : new int[]{1, 4}) {
+                ParallelMapperImpl mapper = new ParallelMapperImpl(threads, workStealing);
+                try {
+                    for (int size : new int[]{0, 1, 3, 16, 17, 1000, 300000}) {
+                        assertMaps(mapper, x -> x / 3, randomList(size));
+                    }
+                } finally {
+                    mapper.close();
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testExpensiveElements() throws Exception {
+        ParallelMapperImpl mapper = new ParallelMapperImpl(3);
+        try {
+            assertMaps(mapper, x -> {
+                long start = System.nanoTime();
+                while (System.nanoTime() - start < 50000) {
+                    Thread.yield();
+                }
+                return x + 1;
+            }, randomList(500));
+        } finally {
+            mapper.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testSkipsFailedElements() throws Exception {
+        ParallelMapperImpl mapper = new ParallelMapperImpl(4, true);
+        try {
+            List<Integer> list = new LinkedList<>(IntStream.range(0, 100000).boxed().collect(Collectors.toList()));
+            List<Integer> result = mapper.map(x -> {
+                if (x % 7 == 0) {
+                    throw new IllegalStateException();
+                }
+                return -x;
+            }, list);
+            assertEquals(list.stream().filter(x -> x % 7 != 0).map(x -> -x).collect(Collectors.toList()), result);
+        } finally {
+            mapper.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testNullResults() throws Exception {
+        ParallelMapperImpl mapper = new ParallelMapperImpl(2);
+        try {
+            assertEquals(Collections.nCopies(1000, null), mapper.map(x -> null, randomList(1000)));
+        } finally {
+            mapper.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testMapDuringClose() throws Exception {
+        for (boolean workStealing : new boolean[]{false, true}) {
+            ParallelMapperImpl mapper = new ParallelMapperImpl(4, workStealing);
+            Thread closer = new Thread(() -> {
+                try {
+                    Thread.sleep(100);
+                    mapper.close();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            closer.start();
+            List<Integer> result = mapper.map(x -> {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return x;
+            }, IntStream.range(0, 200).boxed().collect(Collectors.toList()));
+            closer.join();
+            assertTrue(result.size() < 200);
+            for (int i = 0; i < result.size(); i++) {
+                assertNotNull(result.get(i));
+                if (i > 0) {
+                    assertTrue(result.get(i - 1) < result.get(i));
+                }
+            }
+        }
+    }
+}
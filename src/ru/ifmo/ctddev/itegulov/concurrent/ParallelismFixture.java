@@ -0,0 +1,51 @@
+package ru.ifmo.ctddev.itegulov.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Fixture, shared by tests of {@link IterativeParallelism} and {@link Pipeline}: every test runs
+ * against implementations over both {@link ParallelMapperImpl} and {@link ForkJoinPool}, which
+ * are created before and shut down after it, for every number of threads from {@link #COUNTS}
+ * and every list size from {@link #SIZES}.
+ *
+ * @author Daniyar Itegulov
+ */
+public abstract class ParallelismFixture {
+    /**
+     * Random generator with fixed seed, so that failures are reproducible.
+     */
+    protected static final Random RANDOM = new Random(3239);
+    protected static final int[] COUNTS = {1, 2, 5, 16};
+    protected static final int[] SIZES = {0, 1, 3, 10, 1000, 100000};
+
+    protected ParallelMapperImpl mapper;
+    protected ForkJoinPool forkJoinPool;
+    protected List<IterativeParallelism> implementations;
+
+    @Before
+    public void setUp() {
+        mapper = new ParallelMapperImpl(4);
+        forkJoinPool = new ForkJoinPool(4);
+        implementations = Arrays.asList(new IterativeParallelism(mapper), new IterativeParallelism(forkJoinPool));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mapper.close();
+        forkJoinPool.shutdown();
+    }
+
+    /**
+     * @return list of {@code size} random integers from {@code [-1000, 1000)}
+     */
+    protected static List<Integer> randomList(int size) {
+        return RANDOM.ints(size, -1000, 1000).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,375 @@
+package ru.ifmo.ctddev.itegulov.concurrent;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Lazy sequence of operations over a list, which is created by {@link IterativeParallelism#over}.
+ * Intermediate operations ({@link #filter}, {@link #map}) only remember what to do, terminal
+ * operations run all of them in a single pass: every chunk of the list pushes its elements
+ * through the whole chain of stages, so no intermediate lists are built and every chunk is
+ * scheduled only once.
+ * <p>
+ * Ordered terminal operations ({@link #reduce}, {@link #min}, {@link #max}, {@link #toList},
+ * {@link #findFirst}) combine results of chunks in order of the list, so {@link #reduce} only
+ * needs associative operation. Unordered ones ({@link #count}, {@link #anyMatch},
+ * {@link #allMatch}, {@link #findAny}, {@link #forEach}) don't care about order, and
+ * short-circuiting ones stop all chunks as soon as the answer is known.
+ * <p>
+ * Pipeline is immutable: each intermediate operation returns a new pipeline, so one can
+ * be used as a prefix of several ones.
+ *
+ * @param <T> type of elements, produced by the last stage
+ * @author Daniyar Itegulov
+ */
+public class Pipeline<T> {
+    private final IterativeParallelism parallelism;
+    private final int count;
+    private final List<?> source;
+    /**
+     * Builds chain of stages, which accepts source elements, in front of given sink.
+     */
+    private final Function<Sink<? super T>, Sink<Object>> stages;
+
+    /**
+     * Receives elements, which have passed through previous stages.
+     */
+    private interface Sink<T> {
+        /**
+         * @return {@code false} if current chunk needn't be processed any more
+         */
+        boolean accept(T t);
+    }
+
+    /**
+     * Last sink of a chain, which accumulates result of one chunk.
+     */
+    private interface Terminal<T, A> extends Sink<T> {
+        A result();
+    }
+
+    /**
+     * Possibly absent value, which, unlike {@link Optional}, can be {@code null}.
+     */
+    private static class Box<T> {
+        private boolean isPresent;
+        private T value;
+    }
+
+    @SuppressWarnings("unchecked")
+    Pipeline(IterativeParallelism parallelism, int count, List<?> source) {
+        this(parallelism, count, source, sink -> (Sink<Object>) sink);
+    }
+
+    private Pipeline(IterativeParallelism parallelism, int count, List<?> source,
+                     Function<Sink<? super T>, Sink<Object>> stages) {
+        this.parallelism = parallelism;
+        this.count = count;
+        this.source = source;
+        this.stages = stages;
+    }
+
+    /**
+     * Returns pipeline, which keeps only elements, matching the provided predicate.
+     *
+     * @param predicate predicate to apply to elements
+     * @return the new pipeline
+     */
+    public Pipeline<T> filter(Predicate<? super T> predicate) {
+        return new Pipeline<>(parallelism, count, source,
+                sink -> stages.apply(t -> !predicate.test(t) || sink.accept(t)));
+    }
+
+    /**
+     * Returns pipeline, which replaces elements with results of applying the given function to them.
+     *
+     * @param function function to apply to elements
+     * @param <U> type of results of {@code function}
+     * @return the new pipeline
+     */
+    public <U> Pipeline<U> map(Function<? super T, ? extends U> function) {
+        return new Pipeline<>(parallelism, count, source,
+                sink -> stages.apply(t -> sink.accept(function.apply(t))));
+    }
+
+    /**
+     * Runs the pipeline over every chunk of the source list.
+     *
+     * @param terminal factory of terminal sinks, one per chunk
+     * @param combiner combines results of adjacent chunks, the left one goes first
+     * @param stop flag, after setting which all chunks stop, or {@code null}
+     * @return combined result of all chunks
+     */
+    private <A> A evaluate(Supplier<Terminal<T, A>> terminal, BinaryOperator<A> combiner,
+                           AtomicBoolean stop) throws InterruptedException {
+        IterativeParallelism.PseudoMonoid<A> pseudoMonoid = new IterativeParallelism.PseudoMonoid<>(combiner,
+                () -> terminal.get().result());
+        return parallelism.parallelizeRanges(count, pseudoMonoid, (from, to) -> {
+            Terminal<T, A> sink = terminal.get();
+            Sink<Object> head = stages.apply(sink);
+            for (int i = from; i < to && (stop == null || !stop.get()); i++) {
+                if (!head.accept(source.get(i))) {
+                    break;
+                }
+            }
+            return sink.result();
+        }, source.size(), stop);
+    }
+
+    /**
+     * Reduces elements with given associative operation in order of the list.
+     *
+     * @param operation associative operation
+     * @return result of reduction, or empty {@code Optional} if there are no elements
+     * @throws NullPointerException if result of reduction is {@code null}
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public Optional<T> reduce(BinaryOperator<T> operation) throws InterruptedException {
+        Box<T> box = evaluate(() -> new Terminal<T, Box<T>>() {
+            private final Box<T> box = new Box<>();
+
+            @Override
+            public boolean accept(T t) {
+                box.value = box.isPresent ? operation.apply(box.value, t) : t;
+                box.isPresent = true;
+                return true;
+            }
+
+            @Override
+            public Box<T> result() {
+                return box;
+            }
+        }, (a, b) -> {
+            if (!a.isPresent) {
+                return b;
+            }
+            if (b.isPresent) {
+                a.value = operation.apply(a.value, b.value);
+            }
+            return a;
+        }, null);
+        return box.isPresent ? Optional.of(box.value) : Optional.empty();
+    }
+
+    /**
+     * Reduces elements with given associative operation in order of the list, starting every
+     * chunk with its identity element.
+     *
+     * @param identity identity element of {@code operation}
+     * @param operation associative operation
+     * @return result of reduction, {@code identity} if there are no elements
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public T reduce(T identity, BinaryOperator<T> operation) throws InterruptedException {
+        return evaluate(() -> new Terminal<T, T>() {
+            private T accumulator = identity;
+
+            @Override
+            public boolean accept(T t) {
+                accumulator = operation.apply(accumulator, t);
+                return true;
+            }
+
+            @Override
+            public T result() {
+                return accumulator;
+            }
+        }, operation, null);
+    }
+
+    /**
+     * Returns the minimum element according to the provided comparator, the first one of equal.
+     *
+     * @param comparator comparator to use
+     * @return minimum element, or empty {@code Optional} if there are no elements
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public Optional<T> min(Comparator<? super T> comparator) throws InterruptedException {
+        return reduce((a, b) -> comparator.compare(a, b) <= 0 ? a : b);
+    }
+
+    /**
+     * Returns the maximum element according to the provided comparator, the first one of equal.
+     *
+     * @param comparator comparator to use
+     * @return maximum element, or empty {@code Optional} if there are no elements
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public Optional<T> max(Comparator<? super T> comparator) throws InterruptedException {
+        return reduce((a, b) -> comparator.compare(a, b) >= 0 ? a : b);
+    }
+
+    /**
+     * Collects elements into a list in order of the source list. Stages produce at most one
+     * element per source element, so every chunk fills an array of its own size.
+     *
+     * @return the new fixed-size {@code List}
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> toList() throws InterruptedException {
+        List<IterativeParallelism.Segment> segments = parallelism.parallelizeRanges(count,
+                IterativeParallelism.segments(), (from, to) -> {
+                    Object[] values = new Object[to - from];
+                    int[] size = new int[1];
+                    Sink<Object> head = stages.apply(t -> {
+                        values[size[0]++] = t;
+                        return true;
+                    });
+                    for (int i = from; i < to; i++) {
+                        head.accept(source.get(i));
+                    }
+                    return IterativeParallelism.segment(new IterativeParallelism.Segment(values, size[0]));
+                }, source.size(), null);
+        return (List<T>) Arrays.asList(parallelism.gather(count, segments));
+    }
+
+    /**
+     * Returns the first element in order of the list.
+     *
+     * @return the first element, or empty {@code Optional} if there are no elements
+     * @throws NullPointerException if the first element is {@code null}
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public Optional<T> findFirst() throws InterruptedException {
+        Box<T> box = evaluate(() -> new Terminal<T, Box<T>>() {
+            private final Box<T> box = new Box<>();
+
+            @Override
+            public boolean accept(T t) {
+                box.value = t;
+                box.isPresent = true;
+                return false;
+            }
+
+            @Override
+            public Box<T> result() {
+                return box;
+            }
+        }, (a, b) -> a.isPresent ? a : b, null);
+        return box.isPresent ? Optional.of(box.value) : Optional.empty();
+    }
+
+    /**
+     * Returns some element, stopping all chunks as soon as one of them finds it.
+     *
+     * @return some element, or empty {@code Optional} if there are no elements
+     * @throws NullPointerException if found element is {@code null}
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public Optional<T> findAny() throws InterruptedException {
+        AtomicBoolean found = new AtomicBoolean();
+        Box<T> box = evaluate(() -> new Terminal<T, Box<T>>() {
+            private final Box<T> box = new Box<>();
+
+            @Override
+            public boolean accept(T t) {
+                box.value = t;
+                box.isPresent = true;
+                found.set(true);
+                return false;
+            }
+
+            @Override
+            public Box<T> result() {
+                return box;
+            }
+        }, (a, b) -> a.isPresent ? a : b, found);
+        return box.isPresent ? Optional.of(box.value) : Optional.empty();
+    }
+
+    /**
+     * Returns whether any element matches the provided predicate. Stops as soon as some
+     * chunk finds matching element.
+     *
+     * @param predicate predicate to apply to elements
+     * @return {@code true} if any element matches, {@code false} otherwise
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public boolean anyMatch(Predicate<? super T> predicate) throws InterruptedException {
+        return filter(predicate).findAnyPresence();
+    }
+
+    /**
+     * Returns whether all elements match the provided predicate. Stops as soon as some
+     * chunk finds not matching element.
+     *
+     * @param predicate predicate to apply to elements
+     * @return {@code true} if all elements match or there are no elements, {@code false} otherwise
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public boolean allMatch(Predicate<? super T> predicate) throws InterruptedException {
+        return !filter(predicate.negate()).findAnyPresence();
+    }
+
+    /**
+     * Same as {@link #findAny}, but allows {@code null} elements.
+     */
+    private boolean findAnyPresence() throws InterruptedException {
+        AtomicBoolean found = new AtomicBoolean();
+        evaluate(() -> new Terminal<T, Void>() {
+            @Override
+            public boolean accept(T t) {
+                found.set(true);
+                return false;
+            }
+
+            @Override
+            public Void result() {
+                return null;
+            }
+        }, (a, b) -> null, found);
+        return found.get();
+    }
+
+    /**
+     * @return number of elements
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public long count() throws InterruptedException {
+        return evaluate(() -> new Terminal<T, Long>() {
+            private long count = 0;
+
+            @Override
+            public boolean accept(T t) {
+                count++;
+                return true;
+            }
+
+            @Override
+            public Long result() {
+                return count;
+            }
+        }, Long::sum, null);
+    }
+
+    /**
+     * Performs action for each element. Action is called concurrently from different threads
+     * and in no particular order.
+     *
+     * @param action action to perform
+     * @throws InterruptedException if some of created threads was interrupted
+     */
+    public void forEach(Consumer<? super T> action) throws InterruptedException {
+        evaluate(() -> new Terminal<T, Void>() {
+            @Override
+            public boolean accept(T t) {
+                action.accept(t);
+                return true;
+            }
+
+            @Override
+            public Void result() {
+                return null;
+            }
+        }, (a, b) -> null, null);
+    }
+}
@@ -0,0 +1,136 @@
+package ru.ifmo.ctddev.itegulov.concurrent;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class PipelineTest extends ParallelismFixture {
+    @Test(timeout = 60000)
+    public void testIntermediateOperations() throws Exception {
+        for (IterativeParallelism parallelism : implementations) {
+            for (int size : SIZES) {
+                List<Integer> list = randomList(size);
+                for (int count : COUNTS) {
+                    assertEquals(list.stream().filter(x -> x % 3 != 0).map(x -> x * 2).map(String::valueOf)
+                                    .collect(Collectors.toList()),
+                            parallelism.over(count, list).filter(x -> x % 3 != 0).map(x -> x * 2)
+                                    .map(String::valueOf).toList());
+                    assertEquals(list.stream().filter(x -> x > 0).filter(x -> x < 500).count(),
+                            parallelism.over(count, list).filter(x -> x > 0).filter(x -> x < 500).count());
+                    assertEquals(list, parallelism.over(count, list).toList());
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testReductions() throws Exception {
+        for (IterativeParallelism parallelism : implementations) {
+            for (int size : SIZES) {
+                List<Integer> list = randomList(size);
+                for (int count : COUNTS) {
+                    Pipeline<Integer> pipeline = parallelism.over(count, list);
+                    assertEquals(list.stream().reduce(Integer::sum), pipeline.reduce(Integer::sum));
+                    assertEquals(list.stream().reduce(0, Integer::sum), pipeline.reduce(0, Integer::sum));
+                    assertEquals(list.stream().min(Integer::compare), pipeline.min(Integer::compare));
+                    assertEquals(list.stream().max(Integer::compare), pipeline.max(Integer::compare));
+                    assertEquals(list.stream().map(String::valueOf).reduce("", String::concat),
+                            pipeline.map(String::valueOf).reduce("", String::concat));
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testMinMaxTakeFirstOfEqual() throws Exception {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            list.add(new String(i % 2 == 0 ? "a" : "b"));
+        }
+        Comparator<String> comparator = String::compareTo;
+        for (IterativeParallelism parallelism : implementations) {
+            for (int count : COUNTS) {
+                assertSame(list.get(0), parallelism.over(count, list).min(comparator).get());
+                assertSame(list.get(1), parallelism.over(count, list).max(comparator).get());
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testSearch() throws Exception {
+        List<Predicate<Integer>> predicates = Arrays.asList(x -> x > 990, x -> x % 2 == 0, x -> x < 1000, x -> x > 1000);
+        for (IterativeParallelism parallelism : implementations) {
+            for (int size : SIZES) {
+                List<Integer> list = randomList(size);
+                for (int count : COUNTS) {
+                    for (Predicate<Integer> predicate : predicates) {
+                        Pipeline<Integer> pipeline = parallelism.over(count, list);
+                        assertEquals(list.stream().anyMatch(predicate), pipeline.anyMatch(predicate));
+                        assertEquals(list.stream().allMatch(predicate), pipeline.allMatch(predicate));
+                        assertEquals(list.stream().filter(predicate).findFirst(),
+                                pipeline.filter(predicate).findFirst());
+                        Optional<Integer> any = pipeline.filter(predicate).findAny();
+                        assertEquals(list.stream().anyMatch(predicate), any.isPresent());
+                        assertTrue(!any.isPresent() || predicate.test(any.get()) && list.contains(any.get()));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testForEach() throws Exception {
+        for (IterativeParallelism parallelism : implementations) {
+            for (int size : SIZES) {
+                List<Integer> list = randomList(size);
+                for (int count : COUNTS) {
+                    ConcurrentLinkedQueue<Integer> visited = new ConcurrentLinkedQueue<>();
+                    parallelism.over(count, list).filter(x -> x >= 0).forEach(visited::add);
+                    List<Integer> sorted = new ArrayList<>(visited);
+                    Collections.sort(sorted);
+                    assertEquals(list.stream().filter(x -> x >= 0).sorted().collect(Collectors.toList()), sorted);
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testPrefixReuse() throws Exception {
+        List<Integer> list = randomList(1000);
+        for (IterativeParallelism parallelism : implementations) {
+            Pipeline<Integer> positive = parallelism.over(5, list).filter(x -> x > 0);
+            Pipeline<Integer> doubled = positive.map(x -> x * 2);
+            Pipeline<Integer> even = positive.filter(x -> x % 2 == 0);
+            assertEquals(list.stream().filter(x -> x > 0).collect(Collectors.toList()), positive.toList());
+            assertEquals(list.stream().filter(x -> x > 0).map(x -> x * 2).collect(Collectors.toList()),
+                    doubled.toList());
+            assertEquals(list.stream().filter(x -> x > 0).filter(x -> x % 2 == 0).collect(Collectors.toList()),
+                    even.toList());
+            assertEquals(positive.toList(), positive.toList());
+            assertEquals(list.stream().filter(x -> x > 0).count(), positive.count());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testDefaultCount() throws Exception {
+        List<Integer> list = randomList(100000);
+        for (IterativeParallelism parallelism : implementations) {
+            assertEquals(list.stream().reduce(Integer::sum), parallelism.over(list).reduce(Integer::sum));
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testFindFirstNull() throws Exception {
+        new IterativeParallelism(mapper).over(2, Arrays.asList(null, "a")).findFirst();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testReduceToNull() throws Exception {
+        new IterativeParallelism(forkJoinPool).over(2, Arrays.asList("a", "b")).reduce((a, b) -> null);
+    }
+}
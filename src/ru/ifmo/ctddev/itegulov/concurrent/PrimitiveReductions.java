@@ -0,0 +1,93 @@
+package ru.ifmo.ctddev.itegulov.concurrent;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Sequential kernels for primitive reductions of {@link IterativeParallelism} over a range
+ * {@code [from, to)} of an array.
+ * <p>
+ * These are scalar loops: their gain over the boxed versions comes from reading primitive
+ * arrays without unboxing and allocation. Whether JIT vectorizes some of them depends on the
+ * JVM and CPU and isn't relied upon; {@link #sumInt} (widening to {@code long}),
+ * {@link #countMatching} (calls a predicate) and {@link #histogram} (scatters into buckets)
+ * aren't vectorized by C2 of JDK 17 at all.
+ *
+ * @author Daniyar Itegulov
+ */
+final class PrimitiveReductions {
+    private PrimitiveReductions() {
+    }
+
+    static int maxInt(int[] array, int from, int to) {
+        int max = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, array[i]);
+        }
+        return max;
+    }
+
+    static int minInt(int[] array, int from, int to) {
+        int min = Integer.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, array[i]);
+        }
+        return min;
+    }
+
+    static long sumInt(int[] array, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    static long sumLong(long[] array, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    static double minDouble(double[] array, int from, int to) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, array[i]);
+        }
+        return min;
+    }
+
+    static double maxDouble(double[] array, int from, int to) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, array[i]);
+        }
+        return max;
+    }
+
+    static int countMatching(int[] array, int from, int to, IntPredicate predicate) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (predicate.test(array[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts values from {@code [min, max)} in {@code buckets} buckets of equal width.
+     */
+    static long[] histogram(int[] array, int from, int to, int min, int max, int buckets) {
+        long[] histogram = new long[buckets];
+        long width = (long) max - min;
+        for (int i = from; i < to; i++) {
+            int value = array[i];
+            if (value >= min && value < max) {
+                histogram[(int) (((long) value - min) * buckets / width)]++;
+            }
+        }
+        return histogram;
+    }
+}
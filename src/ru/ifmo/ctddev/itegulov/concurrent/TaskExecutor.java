@@ -2,6 +2,12 @@ package ru.ifmo.ctddev.itegulov.concurrent;
 
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
 
 /**
@@ -17,22 +23,59 @@ import java.util.function.Function;
  * FutureTask fTask2 = executor.submit(task2, arg2);
  * ...
  * </pre>
+ * <p>
+ * By default all threads share one queue, guarded by a single lock. In work-stealing mode
+ * (see {@link #TaskExecutor(int, boolean)}) every thread has its own lock-free deque: tasks,
+ * submitted from outside, are dealt round-robin, tasks, submitted by a worker, go to its own
+ * deque. A worker takes tasks from the tail of its deque and, if it's empty, steals from the
+ * head of others. Idle workers park and {@link #submit} wakes up only one of them.
+ *
  * @author Daniyar Itegulov
  */
 public class TaskExecutor {
-    private final Queue<FutureTask> tasks = new LinkedList<>();
+    private final Queue<FutureTask<?, ?>> tasks = new LinkedList<>();
     private final Thread[] threads;
 
+    private final StealingWorker[] workers;
+    private final Queue<StealingWorker> idleWorkers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    /**
+     * Worker of this executor, which runs in the current thread, if any.
+     */
+    private final ThreadLocal<StealingWorker> currentWorker = new ThreadLocal<>();
+    private volatile boolean isShutdown = false;
+
     /**
      * Class constructor, which specify how many threads can be used
      * for executing passed tasks
      * @param threads number of threads
      */
     public TaskExecutor(int threads) {
-        this.threads= new Thread[threads];
+        this(threads, false);
+    }
+
+    /**
+     * Class constructor, which specify how many threads can be used
+     * for executing passed tasks and whether they should use per-thread
+     * deques and work stealing instead of one shared queue.
+     *
+     * @param threads number of threads
+     * @param workStealing {@code true} to use work stealing
+     */
+    public TaskExecutor(int threads, boolean workStealing) {
+        this.threads = new Thread[threads];
+        this.workers = workStealing ? new StealingWorker[threads] : null;
         for (int i = 0; i < threads; i++) {
-            this.threads[i] = new Thread(new WorkerRunnable());
-            this.threads[i].start();
+            if (workStealing) {
+                workers[i] = new StealingWorker();
+                this.threads[i] = new Thread(workers[i]);
+                workers[i].thread = this.threads[i];
+            } else {
+                this.threads[i] = new Thread(new WorkerRunnable());
+            }
+        }
+        for (Thread thread : this.threads) {
+            thread.start();
         }
     }
 
@@ -50,7 +93,15 @@ public class TaskExecutor {
      */
     public <R, T> FutureTask<R, T> submit(Function<T, R> task, T argument) {
         FutureTask<R, T> futureTask = new FutureTask<>(task, argument);
+        if (workers != null) {
+            push(futureTask);
+            return futureTask;
+        }
         synchronized (tasks) {
+            if (isShutdown) {
+                futureTask.cancel();
+                return futureTask;
+            }
             tasks.add(futureTask);
             tasks.notifyAll();
         }
@@ -66,8 +117,18 @@ public class TaskExecutor {
      */
     public void shutdown() throws InterruptedException {
         synchronized (tasks) {
+            isShutdown = true;
             tasks.forEach(FutureTask::cancel);
             tasks.clear();
+            tasks.notifyAll();
+        }
+        if (workers != null) {
+            for (StealingWorker worker : workers) {
+                FutureTask<?, ?> futureTask;
+                while ((futureTask = worker.deque.pollFirst()) != null) {
+                    futureTask.cancel();
+                }
+            }
         }
 
         for (Thread thread : threads) {
@@ -82,23 +143,127 @@ public class TaskExecutor {
     private class WorkerRunnable implements Runnable {
         @Override
         public void run() {
-            while (!Thread.currentThread().isInterrupted()) {
-                FutureTask futureTask;
+            while (true) {
+                FutureTask<?, ?> futureTask;
                 synchronized (tasks) {
-                    while (tasks.isEmpty()) {
+                    // task can swallow the interrupt, so shutdown is noticed by the flag
+                    while (tasks.isEmpty() && !isShutdown) {
                         try {
                             tasks.wait();
                         } catch (InterruptedException e) {
                             return;
                         }
                     }
+                    if (isShutdown) {
+                        return;
+                    }
                     futureTask = tasks.poll();
                 }
-                futureTask.execute();
-                //noinspection SynchronizationOnLocalVariableOrMethodParameter
-                synchronized (futureTask) {
-                    futureTask.notifyAll();
+                try {
+                    futureTask.execute();
+                } catch (Throwable ignored) {
+                    // task is aborted and its waiters are notified
+                }
+                // interrupt of a cancelled task shouldn't stop the worker
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private void push(FutureTask<?, ?> futureTask) {
+        StealingWorker current = currentWorker.get();
+        if (current == null) {
+            current = workers[(nextWorker.getAndIncrement() & Integer.MAX_VALUE) % workers.length];
+        }
+        current.deque.addLast(futureTask);
+        if (isShutdown) {
+            // shutdown could have already drained the deque
+            futureTask.cancel();
+            return;
+        }
+        signalIdleWorker();
+    }
+
+    /**
+     * Wakes up one parked worker, if there is any.
+     */
+    private void signalIdleWorker() {
+        StealingWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            // queue can contain stale entries of workers, which have found a task by themselves
+            if (worker.idle.compareAndSet(true, false)) {
+                LockSupport.unpark(worker.thread);
+                return;
+            }
+        }
+    }
+
+    private class StealingWorker implements Runnable {
+        private final ConcurrentLinkedDeque<FutureTask<?, ?>> deque = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean idle = new AtomicBoolean();
+        private volatile Thread thread;
+
+        private FutureTask<?, ?> findTask() {
+            FutureTask<?, ?> futureTask = deque.pollLast();
+            if (futureTask != null) {
+                return futureTask;
+            }
+            int start = ThreadLocalRandom.current().nextInt(workers.length);
+            for (int i = 0; i < workers.length; i++) {
+                StealingWorker victim = workers[(start + i) % workers.length];
+                if (victim != this && (futureTask = victim.deque.pollFirst()) != null) {
+                    return futureTask;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Waits for a task. Worker registers itself as idle before the last scan, so
+         * task, pushed after the scan, will find it in {@link #idleWorkers}.
+         *
+         * @return found task, or {@code null} if executor has been shut down
+         */
+        private FutureTask<?, ?> awaitTask() {
+            idle.set(true);
+            idleWorkers.add(this);
+            FutureTask<?, ?> futureTask = findTask();
+            if (futureTask != null) {
+                if (!idle.compareAndSet(true, false)) {
+                    // wakeup has been spent on us, pass it to somebody else
+                    signalIdleWorker();
+                }
+                return futureTask;
+            }
+            while (idle.get()) {
+                if (isShutdown) {
+                    return null;
+                }
+                LockSupport.park(this);
+                // late interrupt from a cancelled task would make park return immediately
+                Thread.interrupted();
+            }
+            return findTask();
+        }
+
+        @Override
+        public void run() {
+            currentWorker.set(this);
+            while (!isShutdown) {
+                FutureTask<?, ?> futureTask = findTask();
+                if (futureTask == null) {
+                    futureTask = awaitTask();
+                    if (futureTask == null) {
+                        continue;
+                    }
+                }
+                try {
+                    futureTask.execute();
+                } catch (Throwable ignored) {
+                    // task is aborted and its waiters are notified
                 }
+                // interrupt of a cancelled task shouldn't stop the worker
+                Thread.interrupted();
             }
         }
     }
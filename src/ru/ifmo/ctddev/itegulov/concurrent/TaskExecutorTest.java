@@ -0,0 +1,153 @@
+package ru.ifmo.ctddev.itegulov.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TaskExecutorTest {
+    private static final boolean[] MODES = {false, true};
+
+    @Test(timeout = 60000)
+    public void testResults() throws Exception {
+        for (boolean workStealing : MODES) {
+            for (int threads : new int[]{1, 4}) {
+                TaskExecutor executor = new TaskExecutor(threads, workStealing);
+                try {
+                    List<FutureTask<Integer, Integer>> tasks = new ArrayList<>();
+                    for (int i = 0; i < 10000; i++) {
+                        tasks.add(executor.submit(x -> x * x, i));
+                    }
+                    for (int i = 0; i < tasks.size(); i++) {
+                        tasks.get(i).waitForDone();
+                        assertTrue(tasks.get(i).isReady());
+                        assertEquals(Integer.valueOf(i * i), tasks.get(i).getResult());
+                    }
+                } finally {
+                    executor.shutdown();
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testFailedTask() throws Exception {
+        for (boolean workStealing : MODES) {
+            TaskExecutor executor = new TaskExecutor(1, workStealing);
+            try {
+                FutureTask<Integer, Integer> failed = executor.submit(x -> {
+                    throw new IllegalStateException();
+                }, 0);
+                failed.waitForDone();
+                assertTrue(failed.isAborted());
+                assertNull(failed.getResult());
+                FutureTask<Integer, Integer> next = executor.submit(x -> x + 1, 1);
+                next.waitForDone();
+                assertEquals(Integer.valueOf(2), next.getResult());
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testError() throws Exception {
+        for (boolean workStealing : MODES) {
+            TaskExecutor executor = new TaskExecutor(1, workStealing);
+            try {
+                FutureTask<Integer, Integer> failed = executor.submit(x -> {
+                    throw new AssertionError();
+                }, 0);
+                failed.waitForDone();
+                assertTrue(failed.isAborted());
+                FutureTask<Integer, Integer> next = executor.submit(x -> x + 1, 1);
+                next.waitForDone();
+                assertEquals(Integer.valueOf(2), next.getResult());
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testNestedSubmits() throws Exception {
+        for (boolean workStealing : MODES) {
+            TaskExecutor executor = new TaskExecutor(3, workStealing);
+            try {
+                ConcurrentLinkedQueue<FutureTask<Integer, Integer>> children = new ConcurrentLinkedQueue<>();
+                AtomicInteger sum = new AtomicInteger();
+                List<FutureTask<Void, Integer>> parents = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    parents.add(executor.submit(x -> {
+                        for (int j = 0; j < 10; j++) {
+                            children.add(executor.submit(y -> {
+                                sum.addAndGet(y);
+                                return y;
+                            }, x));
+                        }
+                        return null;
+                    }, i));
+                }
+                for (FutureTask<Void, Integer> parent : parents) {
+                    parent.waitForDone();
+                    assertTrue(parent.isReady());
+                }
+                assertEquals(1000, children.size());
+                for (FutureTask<Integer, Integer> child : children) {
+                    child.waitForDone();
+                    assertTrue(child.isReady());
+                }
+                assertEquals(10 * 99 * 100 / 2, sum.get());
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testShutdown() throws Exception {
+        for (boolean workStealing : MODES) {
+            TaskExecutor executor = new TaskExecutor(2, workStealing);
+            CountDownLatch started = new CountDownLatch(2);
+            List<FutureTask<Integer, Integer>> tasks = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                tasks.add(executor.submit(x -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(100000);
+                    } catch (InterruptedException e) {
+                        // interrupt is swallowed, shutdown still has to finish
+                    }
+                    return x;
+                }, i));
+            }
+            started.await();
+            executor.shutdown();
+            int aborted = 0;
+            for (FutureTask<Integer, Integer> task : tasks) {
+                task.waitForDone();
+                if (task.isAborted()) {
+                    aborted++;
+                }
+            }
+            // two running tasks complete normally, as they swallow the interrupt
+            assertEquals(98, aborted);
+            FutureTask<Integer, Integer> late = executor.submit(x -> x, 0);
+            late.waitForDone();
+            assertTrue(late.isAborted());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testShutdownIdle() throws Exception {
+        for (boolean workStealing : MODES) {
+            TaskExecutor executor = new TaskExecutor(4, workStealing);
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package ru.ifmo.ctddev.itegulov.concurrent;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Implementation of {@link info.kgeorgiy.java.advanced.mapper.ParallelMapper}, which applies
+ * function to every element in its own virtual thread, so it suits functions, which mostly block
+ * (on I/O, for example): number of simultaneous calls isn't bounded by size of a pool.
+ * <p>
+ * Virtual threads are used, if running JVM supports them ({@code Thread.ofVirtual()}, which
+ * is looked up reflectively). Number of simultaneous calls can be limited: then {@link #map}
+ * waits for a permit before starting a thread for the next element. Platform threads are
+ * expensive, so without virtual ones every call of {@link #map} starts at most as many daemon
+ * threads, as the limit is (by default {@value #PLATFORM_THREADS_PER_PROCESSOR} per available
+ * processor), and they take elements one by one.
+ *
+ * @author Daniyar Itegulov
+ */
+public class VirtualThreadMapper implements ParallelMapper {
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = virtualThreadFactory();
+    private static final int PLATFORM_THREADS_PER_PROCESSOR = 4;
+
+    private final ThreadFactory threadFactory;
+    private final Semaphore limiter;
+    private final int platformThreads;
+    /**
+     * Guards {@link #running}, threads of every call of {@link #map} and closing.
+     */
+    private final Object lock = new Object();
+    private final Set<Thread> running = new HashSet<>();
+    private volatile boolean isClosed = false;
+
+    /**
+     * Class constructor, which doesn't limit number of simultaneous calls on virtual threads
+     * and limits it to {@value #PLATFORM_THREADS_PER_PROCESSOR} per available processor on
+     * platform ones.
+     */
+    public VirtualThreadMapper() {
+        this(VIRTUAL_THREAD_FACTORY != null ? 0
+                : PLATFORM_THREADS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Class constructor, specifying how many calls of function can run simultaneously.
+     *
+     * @param maxConcurrency maximum number of simultaneous calls, or {@code 0} for no limit
+     * @throws IllegalArgumentException if {@code maxConcurrency} is negative
+     */
+    public VirtualThreadMapper(int maxConcurrency) {
+        if (maxConcurrency < 0) {
+            throw new IllegalArgumentException("Negative concurrency limit: " + maxConcurrency);
+        }
+        this.limiter = maxConcurrency == 0 ? null : new Semaphore(maxConcurrency);
+        this.platformThreads = maxConcurrency != 0 ? maxConcurrency
+                : PLATFORM_THREADS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors();
+        this.threadFactory = VIRTUAL_THREAD_FACTORY != null ? VIRTUAL_THREAD_FACTORY : runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @return factory of virtual threads, or {@code null} if they aren't supported
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // no virtual threads before Java 21 (or 19 with --enable-preview)
+            return null;
+        }
+    }
+
+    /**
+     * @return {@code true} if this mapper runs functions on virtual threads
+     */
+    public boolean isVirtual() {
+        return threadFactory == VIRTUAL_THREAD_FACTORY;
+    }
+
+    /**
+     * Returns a {@code List} consisting of the results of applying the given
+     * {@link java.util.function.Function} to the elements of this {@code List}.
+     * Elements, on which function has thrown an exception, are skipped, as well
+     * as elements, which haven't been started before {@link #close}.
+     *
+     * @param function function to apply to elements
+     * @param list list to process
+     * @return the new fixed-size {@code List}
+     * @throws InterruptedException if current thread was interrupted while waiting
+     */
+    @Override
+    public <T, R> List<R> map(final Function<? super T, ? extends R> function, List<? extends T> list) throws InterruptedException {
+        if (!(list instanceof RandomAccess)) {
+            list = new ArrayList<>(list);
+        }
+        List<? extends T> args = list;
+        Object[] results = new Object[args.size()];
+        Arrays.fill(results, ParallelMapperImpl.SKIPPED);
+        Set<Thread> threads = new HashSet<>();
+        try {
+            if (isVirtual()) {
+                for (int i = 0; i < results.length; i++) {
+                    if (limiter != null) {
+                        limiter.acquire();
+                    }
+                    int index = i;
+                    if (!start(threads, () -> {
+                        try {
+                            ParallelMapperImpl.apply(function, args, results, index);
+                        } finally {
+                            if (limiter != null) {
+                                limiter.release();
+                            }
+                        }
+                    })) {
+                        if (limiter != null) {
+                            limiter.release();
+                        }
+                        break;
+                    }
+                }
+            } else {
+                AtomicInteger next = new AtomicInteger();
+                int workers = Math.min(results.length, platformThreads);
+                for (int i = 0; i < workers; i++) {
+                    if (!start(threads, () -> {
+                        int index;
+                        while (!isClosed && !Thread.currentThread().isInterrupted()
+                                && (index = next.getAndIncrement()) < results.length) {
+                            if (limiter != null) {
+                                try {
+                                    limiter.acquire();
+                                } catch (InterruptedException e) {
+                                    return;
+                                }
+                            }
+                            try {
+                                ParallelMapperImpl.apply(function, args, results, index);
+                            } finally {
+                                if (limiter != null) {
+                                    limiter.release();
+                                }
+                            }
+                        }
+                    })) {
+                        break;
+                    }
+                }
+            }
+            synchronized (lock) {
+                while (!threads.isEmpty()) {
+                    lock.wait();
+                }
+            }
+        } catch (InterruptedException e) {
+            synchronized (lock) {
+                threads.forEach(Thread::interrupt);
+            }
+            throw e;
+        }
+        return ParallelMapperImpl.collect(results);
+    }
+
+    /**
+     * Starts thread, which runs given action, unless this mapper is closed. Thread is
+     * registered in {@code threads} and in {@link #running} until it finishes.
+     *
+     * @return {@code false} if this mapper is closed and thread hasn't been started
+     */
+    private boolean start(Set<Thread> threads, Runnable action) {
+        synchronized (lock) {
+            if (isClosed) {
+                return false;
+            }
+            Thread thread = threadFactory.newThread(() -> {
+                try {
+                    action.run();
+                } finally {
+                    Thread current = Thread.currentThread();
+                    synchronized (lock) {
+                        threads.remove(current);
+                        running.remove(current);
+                        if (threads.isEmpty() || isClosed && running.isEmpty()) {
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            running.add(thread);
+            try {
+                thread.start();
+            } catch (Throwable e) {
+                threads.remove(thread);
+                running.remove(thread);
+                throw e;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Stops starting new calls, interrupts running ones and waits for them to finish.
+     *
+     * @throws InterruptedException if current thread was interrupted while waiting
+     */
+    @Override
+    public void close() throws InterruptedException {
+        synchronized (lock) {
+            isClosed = true;
+            running.forEach(Thread::interrupt);
+            while (!running.isEmpty()) {
+                lock.wait();
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ru.ifmo.ctddev.itegulov.concurrent;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class VirtualThreadMapperTest {
+    private static final Random RANDOM = new Random(3239);
+
+    private static List<Integer> randomList(int size) {
+        return RANDOM.ints(size).boxed().collect(Collectors.toList());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return maximum number of simultaneous calls of a sleeping function
+     */
+    private static int maxConcurrency(VirtualThreadMapper mapper, int size) throws InterruptedException {
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+        Function<Integer, Integer> function = x -> {
+            max.accumulateAndGet(current.incrementAndGet(), Math::max);
+            sleep(5);
+            current.decrementAndGet();
+            return x;
+        };
+        List<Integer> list = randomList(size);
+        assertEquals(list, mapper.map(function, list));
+        return max.get();
+    }
+
+    @Test(timeout = 60000)
+    public void testOrder() throws Exception {
+        for (int limit : new int[]{0, 1, 3}) {
+            VirtualThreadMapper mapper = new VirtualThreadMapper(limit);
+            try {
+                for (int size : new int[]{0, 1, 3, 100, 1000}) {
+                    List<Integer> list = randomList(size);
+                    assertEquals(list.stream().map(x -> x / 3).collect(Collectors.toList()),
+                            mapper.map(x -> x / 3, new LinkedList<>(list)));
+                }
+            } finally {
+                mapper.close();
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testSkipsFailedElements() throws Exception {
+        VirtualThreadMapper mapper = new VirtualThreadMapper(8);
+        try {
+            List<Integer> list = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+            assertEquals(list.stream().filter(x -> x % 7 != 0).collect(Collectors.toList()), mapper.map(x -> {
+                if (x % 7 == 0) {
+                    throw new IllegalStateException();
+                }
+                return x;
+            }, list));
+        } finally {
+            mapper.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testLimit() throws Exception {
+        for (int limit : new int[]{1, 2, 5}) {
+            VirtualThreadMapper mapper = new VirtualThreadMapper(limit);
+            try {
+                assertTrue(maxConcurrency(mapper, 50) <= limit);
+            } finally {
+                mapper.close();
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testDefaultLimit() throws Exception {
+        VirtualThreadMapper mapper = new VirtualThreadMapper();
+        try {
+            int max = maxConcurrency(mapper, 200);
+            if (!mapper.isVirtual()) {
+                assertTrue(max <= 4 * Runtime.getRuntime().availableProcessors());
+            }
+        } finally {
+            mapper.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+        new VirtualThreadMapper(-1);
+    }
+
+    @Test(timeout = 60000)
+    public void testMapDuringClose() throws Exception {
+        VirtualThreadMapper mapper = new VirtualThreadMapper(2);
+        Thread closer = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                mapper.close();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        closer.start();
+        List<Integer> result = mapper.map(x -> {
+            sleep(10);
+            return x;
+        }, IntStream.range(0, 200).boxed().collect(Collectors.toList()));
+        closer.join();
+        assertTrue(result.size() < 200);
+        for (int i = 1; i < result.size(); i++) {
+            assertTrue(result.get(i - 1) < result.get(i));
+        }
+        assertEquals(Collections.emptyList(), mapper.map(x -> x, Arrays.asList(1, 2, 3)));
+    }
+
+    @Test(timeout = 60000)
+    public void testCloseWaitsForCalls() throws Exception {
+        for (int limit : new int[]{0, 3}) {
+            VirtualThreadMapper mapper = new VirtualThreadMapper(limit);
+            CountDownLatch started = new CountDownLatch(1);
+            AtomicInteger current = new AtomicInteger();
+            Thread mapping = new Thread(() -> {
+                try {
+                    mapper.map(x -> {
+                        current.incrementAndGet();
+                        started.countDown();
+                        long start = System.nanoTime();
+                        // interrupts are ignored, so close has to wait
+                        while (System.nanoTime() - start < 20000000) {
+                            Thread.yield();
+                        }
+                        current.decrementAndGet();
+                        return x;
+                    }, IntStream.range(0, 100).boxed().collect(Collectors.toList()));
+                } catch (InterruptedException ignored) {
+                }
+            });
+            mapping.start();
+            started.await();
+            mapper.close();
+            assertEquals(0, current.get());
+            mapping.join();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testPlatformThreadsTakeManyElements() throws Exception {
+        VirtualThreadMapper mapper = new VirtualThreadMapper(3);
+        try {
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            List<Integer> list = randomList(10000);
+            assertEquals(list, mapper.map(x -> {
+                threads.add(Thread.currentThread());
+                return x;
+            }, list));
+            if (!mapper.isVirtual()) {
+                assertTrue(threads.size() <= 3);
+            }
+        } finally {
+            mapper.close();
+        }
+    }
+}